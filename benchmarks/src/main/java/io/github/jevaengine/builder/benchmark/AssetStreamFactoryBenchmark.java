@@ -0,0 +1,150 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.benchmark;
+
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures opening and fully reading assets through
+ * {@link BuilderAssetStreamFactory}, for classpath resources and for files
+ * addressed both relative to the asset root and absolutely.
+ *
+ * @author Jeremy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class AssetStreamFactoryBenchmark
+{
+	private static final URI LOCAL_FONT = URI.create("local:///ui/font/pro/pro.juif");
+	private static final URI LOCAL_TEXTURE = URI.create("local:///ui/style/tech/frame/texture.png");
+	
+	@Param({"false", "true"})
+	public boolean mapFiles;
+	
+	@Param({"0", "4194304"})
+	public long resourceCacheSize;
+	
+	@Param({"4096", "1048576"})
+	public int fileSize;
+	
+	private File m_assetRoot;
+	private BuilderAssetStreamFactory m_assetFactory;
+	
+	private URI m_relativeAsset;
+	private URI m_absoluteAsset;
+	
+	private final byte[] m_buffer = new byte[8192];
+	
+	@Setup
+	public void setup() throws IOException
+	{
+		m_assetRoot = File.createTempFile("builder-benchmark", "");
+		m_assetRoot.delete();
+		
+		File asset = new File(m_assetRoot, "world/asset.bin");
+		asset.getParentFile().mkdirs();
+		
+		byte[] contents = new byte[fileSize];
+		new Random(0).nextBytes(contents);
+		
+		try(OutputStream os = new FileOutputStream(asset))
+		{
+			os.write(contents);
+		}
+		
+		//Recently modified files are assumed to be under edit and are never mapped.
+		asset.setLastModified(System.currentTimeMillis() - 60 * 1000);
+		
+		m_relativeAsset = URI.create("world/asset.bin");
+		m_absoluteAsset = asset.getAbsoluteFile().toURI();
+		m_assetFactory = new BuilderAssetStreamFactory(m_assetRoot.toURI(), mapFiles, resourceCacheSize);
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		m_assetFactory.dispose();
+		
+		new File(m_assetRoot, "world/asset.bin").delete();
+		new File(m_assetRoot, "world").delete();
+		m_assetRoot.delete();
+	}
+	
+	private long readFully(URI asset) throws AssetStreamConstructionException, IOException
+	{
+		long total = 0;
+		
+		try(InputStream is = m_assetFactory.create(asset))
+		{
+			for(int read; (read = is.read(m_buffer)) != -1;)
+				total += read;
+		}
+		
+		return total;
+	}
+	
+	@Benchmark
+	public long localFont() throws AssetStreamConstructionException, IOException
+	{
+		return readFully(LOCAL_FONT);
+	}
+	
+	@Benchmark
+	public long localTexture() throws AssetStreamConstructionException, IOException
+	{
+		return readFully(LOCAL_TEXTURE);
+	}
+	
+	@Benchmark
+	public long relativeFile() throws AssetStreamConstructionException, IOException
+	{
+		return readFully(m_relativeAsset);
+	}
+	
+	@Benchmark
+	public long absoluteFile() throws AssetStreamConstructionException, IOException
+	{
+		return readFully(m_absoluteAsset);
+	}
+}
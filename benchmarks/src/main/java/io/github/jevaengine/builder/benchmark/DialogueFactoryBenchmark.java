@@ -0,0 +1,115 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.benchmark;
+
+import io.github.jevaengine.builder.ui.FileInputQueryFactory;
+import io.github.jevaengine.builder.ui.FileInputQueryFactory.FileInputQuery;
+import io.github.jevaengine.builder.ui.FileInputQueryFactory.FileInputQueryMode;
+import io.github.jevaengine.builder.ui.MessageBoxFactory;
+import io.github.jevaengine.builder.ui.MessageBoxFactory.MessageBox;
+import io.github.jevaengine.builder.ui.StatusDialogueFactory;
+import io.github.jevaengine.builder.ui.StatusDialogueFactory.StatusDialogue;
+import io.github.jevaengine.builder.ui.TextInputQueryFactory;
+import io.github.jevaengine.builder.ui.TextInputQueryFactory.TextInputQuery;
+import io.github.jevaengine.ui.IWindowFactory.WindowConstructionException;
+import java.io.File;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of opening and disposing each of the builder's
+ * dialogues, with and without window pooling. Allocation rates are reported
+ * by running with JMH's gc profiler ({@code -prof gc}).
+ *
+ * @author Jeremy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class DialogueFactoryBenchmark
+{
+	@Param({"0", "4"})
+	public int poolSize;
+	
+	private MessageBoxFactory m_messageBoxFactory;
+	private TextInputQueryFactory m_textInputQueryFactory;
+	private FileInputQueryFactory m_fileInputQueryFactory;
+	private StatusDialogueFactory m_statusDialogueFactory;
+	
+	private URI m_base;
+	
+	@Setup
+	public void setup() throws ReflectiveOperationException
+	{
+		String providerName = System.getProperty(IBenchmarkUiProvider.PROVIDER_PROPERTY);
+		
+		if(providerName == null)
+			throw new IllegalStateException("Dialogue benchmarks require the " + IBenchmarkUiProvider.PROVIDER_PROPERTY + " system property.");
+		
+		IBenchmarkUiProvider provider = (IBenchmarkUiProvider)Class.forName(providerName).newInstance();
+		
+		m_base = new File(".").getAbsoluteFile().toURI();
+		m_messageBoxFactory = new MessageBoxFactory(provider.getWindowManager(), provider.getWindowFactory(), poolSize);
+		m_textInputQueryFactory = new TextInputQueryFactory(provider.getWindowManager(), provider.getWindowFactory(), poolSize);
+		m_fileInputQueryFactory = new FileInputQueryFactory(provider.getWindowManager(), provider.getWindowFactory(), m_base, poolSize);
+		m_statusDialogueFactory = new StatusDialogueFactory(provider.getWindowManager(), provider.getWindowFactory(), poolSize);
+	}
+	
+	@Benchmark
+	public void messageBox() throws WindowConstructionException
+	{
+		MessageBox messageBox = m_messageBoxFactory.create("Benchmark message.");
+		messageBox.dispose();
+	}
+	
+	@Benchmark
+	public void textInputQuery() throws WindowConstructionException
+	{
+		TextInputQuery query = m_textInputQueryFactory.create("Benchmark query", "value");
+		query.dispose();
+	}
+	
+	@Benchmark
+	public void fileInputQuery() throws WindowConstructionException
+	{
+		FileInputQuery query = m_fileInputQueryFactory.create(FileInputQueryMode.OpenFile, "Benchmark query", m_base);
+		query.dispose();
+	}
+	
+	@Benchmark
+	public void statusDialogue() throws WindowConstructionException
+	{
+		StatusDialogue dialogue = m_statusDialogueFactory.create();
+		dialogue.dispose();
+	}
+}
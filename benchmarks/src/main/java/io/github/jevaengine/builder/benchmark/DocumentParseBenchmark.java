@@ -0,0 +1,116 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.benchmark;
+
+import io.github.jevaengine.builder.config.BinaryDocument;
+import io.github.jevaengine.builder.config.JsonDocumentReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing the builder's font (pro.juif) and style (tech.juis), both
+ * from their JSON source and from their binary document form. Documents are
+ * read from memory so only the cost of parsing is measured.
+ *
+ * @author Jeremy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class DocumentParseBenchmark
+{
+	private byte[] m_fontJson;
+	private byte[] m_fontBinary;
+	private byte[] m_styleJson;
+	private byte[] m_styleBinary;
+	
+	@Setup
+	public void setup() throws IOException
+	{
+		m_fontJson = readResource("ui/font/pro/pro.juif");
+		m_styleJson = readResource("ui/style/tech/tech.juis");
+		m_fontBinary = toBinary(m_fontJson);
+		m_styleBinary = toBinary(m_styleJson);
+	}
+	
+	private static byte[] readResource(String name) throws IOException
+	{
+		try(InputStream is = DocumentParseBenchmark.class.getClassLoader().getResourceAsStream(name))
+		{
+			if(is == null)
+				throw new IOException("Missing benchmark resource " + name);
+			
+			ByteArrayOutputStream contents = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			
+			for(int read; (read = is.read(buffer)) != -1;)
+				contents.write(buffer, 0, read);
+			
+			return contents.toByteArray();
+		}
+	}
+	
+	private static byte[] toBinary(byte[] json) throws IOException
+	{
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		BinaryDocument.write(JsonDocumentReader.read(new ByteArrayInputStream(json)), binary);
+		
+		return binary.toByteArray();
+	}
+	
+	@Benchmark
+	public Object fontJson() throws IOException
+	{
+		return JsonDocumentReader.read(new ByteArrayInputStream(m_fontJson));
+	}
+	
+	@Benchmark
+	public Object fontBinary() throws IOException
+	{
+		return BinaryDocument.read(new ByteArrayInputStream(m_fontBinary));
+	}
+	
+	@Benchmark
+	public Object styleJson() throws IOException
+	{
+		return JsonDocumentReader.read(new ByteArrayInputStream(m_styleJson));
+	}
+	
+	@Benchmark
+	public Object styleBinary() throws IOException
+	{
+		return BinaryDocument.read(new ByteArrayInputStream(m_styleBinary));
+	}
+}
@@ -0,0 +1,39 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.benchmark;
+
+import io.github.jevaengine.ui.IWindowFactory;
+import io.github.jevaengine.ui.WindowManager;
+
+/**
+ * Supplies the engine's window manager and window factory to
+ * {@link DialogueFactoryBenchmark}. The builder does not bootstrap the engine
+ * itself, so an implementation is named with the
+ * {@value #PROVIDER_PROPERTY} system property and must have a public,
+ * parameterless constructor.
+ *
+ * @author Jeremy
+ */
+public interface IBenchmarkUiProvider
+{
+	String PROVIDER_PROPERTY = "builder.benchmark.uiProvider";
+	
+	WindowManager getWindowManager();
+	IWindowFactory getWindowFactory();
+}
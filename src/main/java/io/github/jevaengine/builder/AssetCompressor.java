@@ -0,0 +1,167 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies an asset tree, gzip compressing every file at least as large as a
+ * threshold into a sibling named with {@link BuilderAssetStreamFactory#COMPRESSED_EXTENSION},
+ * which the factory resolves and decompresses in place of the original. Files
+ * below the threshold, or that do not shrink when compressed, are copied
+ * as they are, since decompressing them would cost more than reading them.
+ *
+ * @author Jeremy
+ */
+public final class AssetCompressor
+{
+	private final long m_threshold;
+	
+	private int m_compressed = 0;
+	private int m_copied = 0;
+	private long m_sourceBytes = 0;
+	private long m_targetBytes = 0;
+	
+	/**
+	 * @param threshold The size, in bytes, from which files are compressed.
+	 */
+	public AssetCompressor(long threshold)
+	{
+		m_threshold = threshold;
+	}
+	
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length != 3)
+		{
+			System.err.println("Usage: AssetCompressor <source directory> <target directory> <threshold in bytes>");
+			System.exit(1);
+		}
+		
+		AssetCompressor compressor = new AssetCompressor(Long.parseLong(args[2]));
+		compressor.compressTree(new File(args[0]), new File(args[1]));
+		
+		System.out.println(String.format("Compressed %d and copied %d assets, %d bytes stored as %d bytes.",
+								compressor.getCompressedCount(), compressor.getCopiedCount(), compressor.getSourceBytes(), compressor.getTargetBytes()));
+	}
+	
+	public int getCompressedCount()
+	{
+		return m_compressed;
+	}
+	
+	public int getCopiedCount()
+	{
+		return m_copied;
+	}
+	
+	public long getSourceBytes()
+	{
+		return m_sourceBytes;
+	}
+	
+	public long getTargetBytes()
+	{
+		return m_targetBytes;
+	}
+	
+	public void compressTree(File source, File target) throws IOException
+	{
+		File[] children = source.listFiles();
+		
+		if(children == null)
+			throw new IOException("Unable to list directory " + source);
+		
+		target.mkdirs();
+		
+		for(File child : children)
+		{
+			if(child.isDirectory())
+				compressTree(child, new File(target, child.getName()));
+			else
+				compress(child, new File(target, child.getName()));
+		}
+	}
+	
+	/**
+	 * @param target The path the file is stored under, either as it is or with the compressed extension appended.
+	 */
+	public void compress(File source, File target) throws IOException
+	{
+		File compressedTarget = new File(target.getPath() + BuilderAssetStreamFactory.COMPRESSED_EXTENSION);
+		long length = source.length();
+		
+		m_sourceBytes += length;
+		
+		//Files that are already compressed are stored as they are, rather than being compressed twice.
+		if(length >= m_threshold && !source.getName().endsWith(BuilderAssetStreamFactory.COMPRESSED_EXTENSION))
+		{
+			//Compressed into a file beside the target rather than into memory, since assets may be large.
+			File compressed = File.createTempFile(target.getName(), ".tmp", target.getAbsoluteFile().getParentFile());
+			
+			try
+			{
+				try(OutputStream os = new BestCompressionOutputStream(new BufferedOutputStream(new FileOutputStream(compressed))))
+				{
+					Files.copy(source.toPath(), os);
+				}
+				
+				long compressedLength = compressed.length();
+				
+				if(compressedLength < length)
+				{
+					Files.move(compressed.toPath(), compressedTarget.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					
+					//A stale uncompressed copy would otherwise take precedence over the compressed one.
+					Files.deleteIfExists(target.toPath());
+					
+					m_targetBytes += compressedLength;
+					m_compressed++;
+					return;
+				}
+			} finally
+			{
+				Files.deleteIfExists(compressed.toPath());
+			}
+		}
+		
+		Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.deleteIfExists(compressedTarget.toPath());
+		
+		m_targetBytes += length;
+		m_copied++;
+	}
+	
+	private static final class BestCompressionOutputStream extends GZIPOutputStream
+	{
+		public BestCompressionOutputStream(OutputStream out) throws IOException
+		{
+			super(out);
+			def.setLevel(Deflater.BEST_COMPRESSION);
+		}
+	}
+}
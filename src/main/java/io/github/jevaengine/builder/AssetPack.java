@@ -0,0 +1,55 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.File;
+
+/**
+ * Describes the layout of an asset pack: a single file holding many assets.
+ * 
+ * A pack begins with a header of the {@link #MAGIC} number, {@link #VERSION}
+ * and the number of entries, followed by the index. The index lists every
+ * entry, sorted by path, as a modified UTF-8 path, the offset of its contents
+ * relative to the data region, and the length of its contents. The data region
+ * immediately follows the index.
+ *
+ * @author Jeremy
+ */
+public final class AssetPack
+{
+	public static final int MAGIC = 0x4A50414B; //JPAK
+	public static final int VERSION = 1;
+	
+	private AssetPack() { }
+	
+	/**
+	 * Produces the name an asset is indexed under in a pack, given the path of
+	 * its URI. Paths are relative to the root the pack was built from, use '/'
+	 * as a separator and never have a leading separator.
+	 */
+	public static String normalizePath(String path)
+	{
+		String normalized = new File(path).toPath().normalize().toString().replace(File.separatorChar, '/');
+		
+		while(normalized.startsWith("/"))
+			normalized = normalized.substring(1);
+		
+		return normalized;
+	}
+}
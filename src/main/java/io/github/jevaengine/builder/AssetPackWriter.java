@@ -0,0 +1,181 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builds an asset pack, as described by {@link AssetPack}, from every file
+ * under an asset root. Contents are read through a
+ * {@link BuilderAssetStreamFactory} rooted at the same directory, so compressed
+ * assets are packed decompressed under their uncompressed path.
+ *
+ * @author Jeremy
+ */
+public final class AssetPackWriter
+{
+	private final File m_assetRoot;
+	private final IAssetStreamFactory m_assetFactory;
+	
+	public AssetPackWriter(File assetRoot, IAssetStreamFactory assetFactory)
+	{
+		m_assetRoot = assetRoot;
+		m_assetFactory = assetFactory;
+	}
+	
+	public static void main(String[] args) throws IOException, AssetStreamConstructionException
+	{
+		if(args.length != 2)
+		{
+			System.err.println("Usage: AssetPackWriter <asset root> <pack file>");
+			System.exit(1);
+		}
+		
+		File assetRoot = new File(args[0]);
+		BuilderAssetStreamFactory assetFactory = new BuilderAssetStreamFactory(assetRoot.toURI(), false, BuilderAssetStreamFactory.DEFAULT_RESOURCE_CACHE_SIZE, false);
+		
+		try
+		{
+			int count = new AssetPackWriter(assetRoot, assetFactory).write(new File(args[1]));
+			System.out.println("Packed " + count + " assets into " + args[1]);
+		} finally
+		{
+			assetFactory.dispose();
+		}
+	}
+	
+	private void collect(File directory, String prefix, Set<String> paths)
+	{
+		File[] children = directory.listFiles();
+		
+		if(children == null)
+			return;
+		
+		for(File child : children)
+		{
+			String path = prefix + child.getName();
+			
+			if(child.isDirectory())
+				collect(child, path + "/", paths);
+			else
+				paths.add(BuilderAssetStreamFactory.getUncompressedPath(path));
+		}
+	}
+	
+	private static URI toUri(String path) throws IOException
+	{
+		try
+		{
+			return new URI(null, null, path, null);
+		} catch (URISyntaxException e)
+		{
+			throw new IOException("Asset path cannot be expressed as a URI: " + path, e);
+		}
+	}
+	
+	/**
+	 * Writes every asset under the asset root into a pack.
+	 * 
+	 * @return The number of assets written.
+	 */
+	public int write(File destination) throws IOException, AssetStreamConstructionException
+	{
+		Set<String> collected = new TreeSet<>();
+		collect(m_assetRoot, "", collected);
+		
+		List<String> paths = new ArrayList<>(collected);
+		
+		long[] offsets = new long[paths.size()];
+		long[] lengths = new long[paths.size()];
+		
+		//Data is staged separately since entry lengths are only known once each asset has been read.
+		File data = File.createTempFile("assetpack", ".data", destination.getAbsoluteFile().getParentFile());
+		
+		try
+		{
+			try(OutputStream os = new BufferedOutputStream(new FileOutputStream(data)))
+			{
+				byte[] buffer = new byte[64 * 1024];
+				long offset = 0;
+
+				for(int i = 0; i < paths.size(); i++)
+				{
+					offsets[i] = offset;
+					
+					try(InputStream is = m_assetFactory.create(toUri(paths.get(i))))
+					{
+						for(int read; (read = is.read(buffer)) != -1;)
+						{
+							os.write(buffer, 0, read);
+							offset += read;
+						}
+					}
+					
+					lengths[i] = offset - offsets[i];
+				}
+			}
+			
+			try(FileOutputStream fos = new FileOutputStream(destination))
+			{
+				DataOutputStream header = new DataOutputStream(new BufferedOutputStream(fos));
+				header.writeInt(AssetPack.MAGIC);
+				header.writeInt(AssetPack.VERSION);
+				header.writeInt(paths.size());
+				
+				for(int i = 0; i < paths.size(); i++)
+				{
+					header.writeUTF(paths.get(i));
+					header.writeLong(offsets[i]);
+					header.writeLong(lengths[i]);
+				}
+				
+				header.flush();
+				
+				try(FileChannel source = new FileInputStream(data).getChannel())
+				{
+					FileChannel target = fos.getChannel();
+					
+					for(long position = 0; position < source.size();)
+						position += source.transferTo(position, source.size() - position, target);
+				}
+			}
+		} finally
+		{
+			data.delete();
+		}
+		
+		return paths.size();
+	}
+}
@@ -0,0 +1,280 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.AssetSourceWatcher.IAssetSourceObserver;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes the files present under an asset root, such that whether the root
+ * provides a path can be answered without probing the file system. The root's
+ * directories are registered with a watch service and the index is built in
+ * the background, and the index is then kept current by watching the root;
+ * until it has been built, or if the root is not or cannot be watched,
+ * presence is unknown.
+ *
+ * @author Jeremy
+ */
+final class AssetRootIndex implements IDisposable
+{
+	private final Logger m_logger = LoggerFactory.getLogger(AssetRootIndex.class);
+	
+	private final File m_root;
+	private final Path m_rootPath;
+	private final IAssetSourceObserver m_observer;
+	
+	private volatile AssetSourceWatcher m_watcher = null;
+	private boolean m_isDisposed = false;
+	
+	private volatile Set<String> m_files = null;
+	private int m_changes = 0;
+	
+	/**
+	 * @param observer Notified of changes under the root once the index has been updated to reflect them.
+	 * @param watch Whether the root should be watched and indexed, or only ever probed.
+	 */
+	public AssetRootIndex(File root, IAssetSourceObserver observer, boolean watch)
+	{
+		m_root = root;
+		m_rootPath = root.toPath().toAbsolutePath().normalize();
+		m_observer = observer;
+		
+		if(watch && root.isDirectory())
+		{
+			Thread indexer = new Thread(new Runnable() {
+				@Override
+				public void run()
+				{
+					if(watch())
+						index();
+				}
+			}, "Asset Root Indexer - " + m_rootPath);
+			
+			indexer.setDaemon(true);
+			indexer.start();
+		}
+	}
+	
+	/**
+	 * @return Whether the root is now watched.
+	 */
+	private boolean watch()
+	{
+		AssetSourceWatcher watcher;
+		
+		try
+		{
+			watcher = new AssetSourceWatcher(m_root, new IndexUpdater());
+		} catch (IOException e)
+		{
+			m_logger.warn("Unable to watch asset root " + m_root + ", paths under it will be probed and not cached.", e);
+			return false;
+		}
+		
+		synchronized(this)
+		{
+			if(!m_isDisposed)
+			{
+				m_watcher = watcher;
+				return true;
+			}
+		}
+		
+		watcher.dispose();
+		return false;
+	}
+	
+	@Override
+	public void dispose()
+	{
+		AssetSourceWatcher watcher;
+		
+		synchronized(this)
+		{
+			m_isDisposed = true;
+			watcher = m_watcher;
+		}
+		
+		if(watcher != null)
+			watcher.dispose();
+		
+		m_files = null;
+	}
+	
+	public File getRoot()
+	{
+		return m_root;
+	}
+	
+	/**
+	 * @return Whether changes under this root are observed, such that lookups against it may be cached.
+	 *         A root is not watched until every directory under it has been registered.
+	 */
+	public boolean isWatched()
+	{
+		return m_watcher != null;
+	}
+	
+	/**
+	 * @param normalizedPath The path, relative to the root and using '/' as its separator, without redundant elements.
+	 * @return Whether the root provides a file at the path, or null if that is not known.
+	 */
+	public Boolean contains(String normalizedPath)
+	{
+		Set<String> files = m_files;
+		
+		if(files == null || normalizedPath.equals("..") || normalizedPath.startsWith("../"))
+			return null;
+		
+		return files.contains(normalizedPath);
+	}
+	
+	private void index()
+	{
+		while(true)
+		{
+			int changes;
+			
+			synchronized(this)
+			{
+				changes = m_changes;
+			}
+			
+			Set<String> files = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+			
+			try
+			{
+				collect(m_rootPath, files);
+			} catch (IOException e)
+			{
+				m_logger.warn("Unable to index asset root " + m_root + ", paths under it will be probed.", e);
+				return;
+			}
+			
+			//Changes observed during the walk may not be reflected in it, in which case walk again.
+			synchronized(this)
+			{
+				if(m_isDisposed)
+					return;
+				
+				if(changes == m_changes)
+				{
+					m_files = files;
+					return;
+				}
+			}
+		}
+	}
+	
+	private void collect(Path directory, final Set<String> files) throws IOException
+	{
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+			{
+				if(attrs.isRegularFile())
+					files.add(m_rootPath.relativize(file).toString().replace(File.separatorChar, '/'));
+				
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e)
+			{
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	private final class IndexUpdater implements IAssetSourceObserver
+	{
+		@Override
+		public void changed(String relativePath)
+		{
+			boolean reindex = false;
+			
+			synchronized(AssetRootIndex.this)
+			{
+				m_changes++;
+				
+				Set<String> files = m_files;
+				
+				if(files != null)
+				{
+					Path changed = m_rootPath.resolve(relativePath);
+					
+					if(Files.isRegularFile(changed))
+						files.add(relativePath);
+					else if(Files.isDirectory(changed))
+					{
+						try
+						{
+							collect(changed, files);
+						} catch (IOException e)
+						{
+							m_logger.warn("Unable to index asset directory " + changed + ", reindexing root.", e);
+							m_files = null;
+							reindex = true;
+						}
+					} else
+					{
+						for(Iterator<String> it = files.iterator(); it.hasNext();)
+						{
+							String file = it.next();
+							
+							if(file.equals(relativePath) || file.startsWith(relativePath + "/"))
+								it.remove();
+						}
+					}
+				}
+			}
+			
+			if(reindex)
+				index();
+			
+			m_observer.changed(relativePath);
+		}
+		
+		@Override
+		public void overflow()
+		{
+			synchronized(AssetRootIndex.this)
+			{
+				m_changes++;
+				m_files = null;
+			}
+			
+			index();
+			m_observer.overflow();
+		}
+	}
+}
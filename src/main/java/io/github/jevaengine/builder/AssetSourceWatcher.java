@@ -0,0 +1,187 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IDisposable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches an asset directory tree and reports paths, relative to the root of
+ * the tree, that have been created, deleted or modified. Since a
+ * {@link WatchService} only observes a single directory, every directory
+ * in the tree is registered and newly created directories are picked up as they appear.
+ *
+ * @author Jeremy
+ */
+final class AssetSourceWatcher implements IDisposable
+{
+	private final Logger m_logger = LoggerFactory.getLogger(AssetSourceWatcher.class);
+	
+	private final Path m_root;
+	private final WatchService m_watchService;
+	private final IAssetSourceObserver m_observer;
+	private final Map<WatchKey, Path> m_directories = new HashMap<>();
+	private final Thread m_thread;
+	
+	public AssetSourceWatcher(File root, IAssetSourceObserver observer) throws IOException
+	{
+		m_root = root.toPath().toAbsolutePath().normalize();
+		m_observer = observer;
+		m_watchService = FileSystems.getDefault().newWatchService();
+		
+		try
+		{
+			registerTree(m_root);
+		} catch(IOException e)
+		{
+			m_watchService.close();
+			throw e;
+		}
+		
+		m_thread = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				watch();
+			}
+		}, "Asset Source Watcher - " + m_root);
+		
+		m_thread.setDaemon(true);
+		m_thread.start();
+	}
+	
+	@Override
+	public void dispose()
+	{
+		try
+		{
+			m_watchService.close();
+		} catch (IOException e)
+		{
+			m_logger.warn("Unable to close asset source watch service", e);
+		}
+	}
+	
+	private void registerTree(Path directory) throws IOException
+	{
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+			{
+				WatchKey key = dir.register(m_watchService,
+												StandardWatchEventKinds.ENTRY_CREATE,
+												StandardWatchEventKinds.ENTRY_DELETE,
+												StandardWatchEventKinds.ENTRY_MODIFY);
+				
+				synchronized(m_directories)
+				{
+					m_directories.put(key, dir);
+				}
+				
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	private String relativize(Path path)
+	{
+		return m_root.relativize(path).toString().replace(File.separatorChar, '/');
+	}
+	
+	private void watch()
+	{
+		try
+		{
+			while(true)
+			{
+				WatchKey key = m_watchService.take();
+				Path directory;
+				
+				synchronized(m_directories)
+				{
+					directory = m_directories.get(key);
+				}
+				
+				for(WatchEvent<?> event : key.pollEvents())
+				{
+					if(event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null)
+					{
+						m_observer.overflow();
+						continue;
+					}
+					
+					Path changed = directory.resolve((Path)event.context());
+					
+					if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed))
+					{
+						try
+						{
+							registerTree(changed);
+						} catch (IOException e)
+						{
+							m_logger.warn("Unable to watch new asset directory " + changed, e);
+						}
+					}
+					
+					m_observer.changed(relativize(changed));
+				}
+				
+				if(!key.reset())
+				{
+					synchronized(m_directories)
+					{
+						m_directories.remove(key);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e)
+		{
+			//Watch service has been disposed of.
+		}
+	}
+	
+	public interface IAssetSourceObserver
+	{
+		/**
+		 * @param relativePath The path, using '/' as its separator, that was created, deleted or modified.
+		 */
+		void changed(String relativePath);
+		
+		/**
+		 * Invoked when events may have been lost and any knowledge of the tree should be discarded.
+		 */
+		void overflow();
+	}
+}
@@ -0,0 +1,288 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.builder.util.LatencyHistogram;
+import io.github.jevaengine.builder.util.StripedCounter;
+import java.net.URI;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by an {@link InstrumentedAssetStreamFactory}. Loads are
+ * split between the local classpath scheme and everything else, which the
+ * builder resolves against the file system.
+ * 
+ * The most frequently loaded assets are ranked with the space-saving algorithm:
+ * a bounded number of assets are tracked, and an asset that is not tracked
+ * displaces the least loaded one, inheriting its count. An asset that becomes
+ * hot at any point is therefore ranked, though the count of an asset that
+ * displaced another may be overestimated by up to the count it inherited.
+ *
+ * @author Jeremy
+ */
+public final class AssetStreamMetrics implements AssetStreamMetricsMBean
+{
+	private static final String LOCAL_SCHEME = "local";
+	
+	private static final int MAX_TRACKED_ASSETS = 4096;
+	private static final int HOTTEST_ASSET_COUNT = 20;
+	
+	private final SchemeMetrics m_local = new SchemeMetrics();
+	private final SchemeMetrics m_file = new SchemeMetrics();
+	
+	private final ConcurrentMap<String, AtomicLong> m_assetLoads = new ConcurrentHashMap<>();
+	
+	//Guarded by m_assetLoads. Tracked assets last seen with the fewest loads, which are displaced first.
+	private final Deque<String> m_evictionCandidates = new ArrayDeque<>();
+	private long m_evictionCandidateLoads = 0;
+	private long m_evictedAssets = 0;
+	
+	private final ResourceCache m_resourceCache;
+	
+	/**
+	 * @param resourceCache The resource cache whose hit rate is reported alongside the load counters, or null.
+	 */
+	AssetStreamMetrics(ResourceCache resourceCache)
+	{
+		m_resourceCache = resourceCache;
+	}
+	
+	SchemeMetrics getScheme(URI uri)
+	{
+		return LOCAL_SCHEME.equals(uri.getScheme()) ? m_local : m_file;
+	}
+	
+	void recordAsset(URI uri)
+	{
+		String name = uri.toString();
+		AtomicLong loads = m_assetLoads.get(name);
+		
+		//A load racing the eviction of its asset may go uncounted, which the ranking tolerates.
+		if(loads != null)
+		{
+			loads.incrementAndGet();
+			return;
+		}
+		
+		synchronized(m_assetLoads)
+		{
+			loads = m_assetLoads.get(name);
+			
+			if(loads != null)
+				loads.incrementAndGet();
+			else if(m_assetLoads.size() < MAX_TRACKED_ASSETS)
+				m_assetLoads.put(name, new AtomicLong(1));
+			else
+			{
+				String evicted = pollEvictionCandidate();
+				long inherited = m_assetLoads.remove(evicted).get();
+				
+				m_assetLoads.put(name, new AtomicLong(inherited + 1));
+				m_evictedAssets++;
+			}
+		}
+	}
+	
+	/**
+	 * @return A tracked asset with the fewest loads. Must be invoked while holding the lock on m_assetLoads.
+	 */
+	private String pollEvictionCandidate()
+	{
+		while(true)
+		{
+			for(String candidate; (candidate = m_evictionCandidates.poll()) != null;)
+			{
+				AtomicLong loads = m_assetLoads.get(candidate);
+				
+				//Counts only grow and new assets start above the minimum, so an unchanged candidate is still least loaded.
+				if(loads != null && loads.get() == m_evictionCandidateLoads)
+					return candidate;
+			}
+			
+			long fewest = Long.MAX_VALUE;
+			
+			for(AtomicLong loads : m_assetLoads.values())
+				fewest = Math.min(fewest, loads.get());
+			
+			for(Map.Entry<String, AtomicLong> e : m_assetLoads.entrySet())
+			{
+				if(e.getValue().get() == fewest)
+					m_evictionCandidates.add(e.getKey());
+			}
+			
+			m_evictionCandidateLoads = fewest;
+		}
+	}
+	
+	@Override
+	public long getLocalLoads()
+	{
+		return m_local.m_loads.sum();
+	}
+	
+	@Override
+	public long getLocalFailures()
+	{
+		return m_local.m_failures.sum();
+	}
+	
+	@Override
+	public long getLocalBytesRead()
+	{
+		return m_local.m_bytesRead.sum();
+	}
+	
+	@Override
+	public long getLocalLatencyMedian()
+	{
+		return toMicroseconds(m_local.m_latency.getPercentile(0.5));
+	}
+	
+	@Override
+	public long getLocalLatency99thPercentile()
+	{
+		return toMicroseconds(m_local.m_latency.getPercentile(0.99));
+	}
+	
+	@Override
+	public long getFileLoads()
+	{
+		return m_file.m_loads.sum();
+	}
+	
+	@Override
+	public long getFileFailures()
+	{
+		return m_file.m_failures.sum();
+	}
+	
+	@Override
+	public long getFileBytesRead()
+	{
+		return m_file.m_bytesRead.sum();
+	}
+	
+	@Override
+	public long getFileLatencyMedian()
+	{
+		return toMicroseconds(m_file.m_latency.getPercentile(0.5));
+	}
+	
+	@Override
+	public long getFileLatency99thPercentile()
+	{
+		return toMicroseconds(m_file.m_latency.getPercentile(0.99));
+	}
+	
+	@Override
+	public long getResourceCacheHits()
+	{
+		return m_resourceCache == null ? 0 : m_resourceCache.getHitCount();
+	}
+	
+	@Override
+	public long getResourceCacheMisses()
+	{
+		return m_resourceCache == null ? 0 : m_resourceCache.getMissCount();
+	}
+	
+	@Override
+	public int getTrackedAssetCount()
+	{
+		return m_assetLoads.size();
+	}
+	
+	@Override
+	public long getEvictedAssetCount()
+	{
+		synchronized(m_assetLoads)
+		{
+			return m_evictedAssets;
+		}
+	}
+	
+	@Override
+	public String[] getHottestAssets()
+	{
+		List<Map.Entry<String, Long>> loads = new ArrayList<>();
+		
+		for(Map.Entry<String, AtomicLong> e : m_assetLoads.entrySet())
+			loads.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue().get()));
+		
+		Collections.sort(loads, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b)
+			{
+				return Long.compare(b.getValue(), a.getValue());
+			}
+		});
+		
+		String[] hottest = new String[Math.min(HOTTEST_ASSET_COUNT, loads.size())];
+		
+		for(int i = 0; i < hottest.length; i++)
+			hottest[i] = loads.get(i).getValue() + " " + loads.get(i).getKey();
+		
+		return hottest;
+	}
+	
+	@Override
+	public void reset()
+	{
+		m_local.reset();
+		m_file.reset();
+		
+		synchronized(m_assetLoads)
+		{
+			m_assetLoads.clear();
+			m_evictionCandidates.clear();
+			m_evictedAssets = 0;
+		}
+	}
+	
+	private static long toMicroseconds(long nanoseconds)
+	{
+		return nanoseconds == Long.MAX_VALUE ? Long.MAX_VALUE : nanoseconds / 1000;
+	}
+	
+	static final class SchemeMetrics
+	{
+		final StripedCounter m_loads = new StripedCounter();
+		final StripedCounter m_failures = new StripedCounter();
+		final StripedCounter m_bytesRead = new StripedCounter();
+		final LatencyHistogram m_latency = new LatencyHistogram();
+		
+		private void reset()
+		{
+			m_loads.reset();
+			m_failures.reset();
+			m_bytesRead.reset();
+			m_latency.reset();
+		}
+	}
+}
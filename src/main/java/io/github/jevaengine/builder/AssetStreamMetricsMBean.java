@@ -0,0 +1,58 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+/**
+ * Management interface of {@link AssetStreamMetrics}. Latencies are reported in
+ * microseconds and are accurate to within a factor of two.
+ *
+ * @author Jeremy
+ */
+public interface AssetStreamMetricsMBean
+{
+	long getLocalLoads();
+	long getLocalFailures();
+	long getLocalBytesRead();
+	long getLocalLatencyMedian();
+	long getLocalLatency99thPercentile();
+	
+	long getFileLoads();
+	long getFileFailures();
+	long getFileBytesRead();
+	long getFileLatencyMedian();
+	long getFileLatency99thPercentile();
+	
+	long getResourceCacheHits();
+	long getResourceCacheMisses();
+	
+	int getTrackedAssetCount();
+	
+	/**
+	 * @return The number of times a tracked asset was displaced by one that was not tracked.
+	 */
+	long getEvictedAssetCount();
+	
+	/**
+	 * @return The most frequently loaded assets, most frequent first, each formatted as "count uri".
+	 *         Counts may be overestimated, see {@link AssetStreamMetrics}.
+	 */
+	String[] getHottestAssets();
+	
+	void reset();
+}
@@ -0,0 +1,252 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory.IAssetChangeObserver;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads assets on a bounded pool of I/O threads. Assets can be prefetched,
+ * after which their contents are kept in memory and synchronous calls to
+ * {@link #create(URI)} are served from them rather than from the underlying factory.
+ * When the underlying factory is a {@link BuilderAssetStreamFactory}, prefetched
+ * assets are evicted as they are changed on disk.
+ *
+ * @author Jeremy
+ */
+public final class AsyncAssetStreamFactory implements IAssetStreamFactory, IDisposable
+{
+	public static final URI BUILDER_UI_MANIFEST = URI.create("local:///ui/prefetch.txt");
+	
+	private final IAssetStreamFactory m_assetFactory;
+	private final ExecutorService m_executor;
+	
+	private final ConcurrentHashMap<URI, Future<byte[]>> m_prefetched = new ConcurrentHashMap<>();
+	private final IAssetChangeObserver m_changeObserver = new PrefetchInvalidator();
+	
+	public AsyncAssetStreamFactory(IAssetStreamFactory assetFactory)
+	{
+		this(assetFactory, Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())));
+	}
+	
+	/**
+	 * @param assetFactory The factory assets are loaded through.
+	 * @param ioThreads The maximum number of assets loaded concurrently.
+	 */
+	public AsyncAssetStreamFactory(IAssetStreamFactory assetFactory, int ioThreads)
+	{
+		m_assetFactory = assetFactory;
+		m_executor = Executors.newFixedThreadPool(ioThreads, new IoThreadFactory());
+		
+		if(assetFactory instanceof BuilderAssetStreamFactory)
+			((BuilderAssetStreamFactory)assetFactory).addAssetChangeObserver(m_changeObserver);
+	}
+	
+	@Override
+	public void dispose()
+	{
+		if(m_assetFactory instanceof BuilderAssetStreamFactory)
+			((BuilderAssetStreamFactory)m_assetFactory).removeAssetChangeObserver(m_changeObserver);
+		
+		m_executor.shutdownNow();
+		m_prefetched.clear();
+	}
+	
+	/**
+	 * Begins loading the specified asset.
+	 * 
+	 * @return A future that produces a stream over the asset's contents, or fails
+	 *         with an {@link AssetStreamConstructionException}.
+	 */
+	public Future<InputStream> createAsync(final URI path)
+	{
+		return m_executor.submit(new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws AssetStreamConstructionException, IOException
+			{
+				Future<byte[]> prefetched = m_prefetched.get(path);
+				
+				if(prefetched != null && prefetched.isDone())
+					return create(path);
+				
+				try(InputStream is = m_assetFactory.create(path))
+				{
+					return new ByteArrayInputStream(ResourceCache.readFully(is));
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Loads the specified assets in parallel and retains their contents until they are evicted.
+	 */
+	public void prefetch(Collection<URI> paths)
+	{
+		for(final URI path : paths)
+		{
+			if(m_prefetched.containsKey(path))
+				continue;
+			
+			Future<byte[]> contents = m_executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws AssetStreamConstructionException, IOException
+				{
+					try(InputStream is = m_assetFactory.create(path))
+					{
+						return ResourceCache.readFully(is);
+					}
+				}
+			});
+			
+			if(m_prefetched.putIfAbsent(path, contents) != null)
+				contents.cancel(false);
+		}
+	}
+	
+	/**
+	 * Prefetches every asset listed in a manifest. A manifest lists one asset URI
+	 * per line. Blank lines and lines beginning with '#' are ignored.
+	 * 
+	 * @return The assets that are being prefetched.
+	 */
+	public List<URI> prefetchManifest(URI manifest) throws AssetStreamConstructionException
+	{
+		List<URI> paths = new ArrayList<>();
+		
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(m_assetFactory.create(manifest), StandardCharsets.UTF_8)))
+		{
+			for(String line; (line = reader.readLine()) != null;)
+			{
+				line = line.trim();
+				
+				if(!line.isEmpty() && !line.startsWith("#"))
+					paths.add(manifest.resolve(line));
+			}
+		} catch (IOException | IllegalArgumentException e)
+		{
+			throw new AssetStreamConstructionException(manifest, e);
+		}
+		
+		prefetch(paths);
+		
+		return paths;
+	}
+	
+	public void evict(URI path)
+	{
+		m_prefetched.remove(path);
+	}
+	
+	public void evictAll()
+	{
+		m_prefetched.clear();
+	}
+	
+	@Override
+	public InputStream create(URI path) throws AssetStreamConstructionException
+	{
+		Future<byte[]> prefetched = m_prefetched.get(path);
+		
+		//A prefetch still in progress is not waited on, as the asset may as well be loaded directly.
+		if(prefetched != null && prefetched.isDone())
+		{
+			try
+			{
+				return new ByteArrayInputStream(prefetched.get());
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new AssetStreamConstructionException(path, e);
+			} catch (ExecutionException | CancellationException e)
+			{
+				//Failed prefetches are retried synchronously so the caller sees the underlying failure.
+				m_prefetched.remove(path, prefetched);
+			}
+		}
+		
+		return m_assetFactory.create(path);
+	}
+	
+	private final class PrefetchInvalidator implements IAssetChangeObserver
+	{
+		@Override
+		public void changed(String relativePath)
+		{
+			for(Iterator<URI> it = m_prefetched.keySet().iterator(); it.hasNext();)
+			{
+				URI path = it.next();
+				
+				//Only relative assets are resolved against the watched roots.
+				if(path.getScheme() != null || path.getPath() == null)
+					continue;
+				
+				String prefetchedPath = path.normalize().getPath();
+				
+				if(prefetchedPath.equals(relativePath) || prefetchedPath.startsWith(relativePath + "/") ||
+					relativePath.equals(prefetchedPath + BuilderAssetStreamFactory.COMPRESSED_EXTENSION))
+					it.remove();
+			}
+		}
+		
+		@Override
+		public void overflow()
+		{
+			for(Iterator<URI> it = m_prefetched.keySet().iterator(); it.hasNext();)
+			{
+				if(it.next().getScheme() == null)
+					it.remove();
+			}
+		}
+	}
+	
+	private static final class IoThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger m_count = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "Asset I/O - " + m_count.incrementAndGet());
+			thread.setDaemon(true);
+			
+			return thread;
+		}
+	}
+}
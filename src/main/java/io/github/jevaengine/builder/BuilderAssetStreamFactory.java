@@ -19,33 +19,319 @@
 package io.github.jevaengine.builder;
 
 import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.AssetSourceWatcher.IAssetSourceObserver;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 
 /**
  *
  * @author Jeremy
  */
-public final class BuilderAssetStreamFactory implements IAssetStreamFactory
+public final class BuilderAssetStreamFactory implements IAssetStreamFactory, IDisposable
 {
-	private final File m_assetSource;
+	public static final long DEFAULT_RESOURCE_CACHE_SIZE = 4 * 1024 * 1024;
+	
+	/**
+	 * The extension of gzip compressed assets, which are resolved in place of their
+	 * uncompressed path when it is not present and are decompressed as they are read.
+	 */
+	public static final String COMPRESSED_EXTENSION = ".gz";
+	
+	private static final int DECOMPRESSION_BUFFER_SIZE = 16 * 1024;
+	
+	/**
+	 * The working directory, which may be given as the last of the asset roots such that
+	 * paths no other root provides are resolved against it. It is then indexed and watched
+	 * as any other root is, so it should only be given when it is not a large tree.
+	 */
+	public static final URI WORKING_DIRECTORY = new File("").getAbsoluteFile().toURI();
+	
+	private final List<AssetRootIndex> m_assetRoots = new ArrayList<>();
+	
+	private final MappedFileCache m_mappedFiles;
+	private final ResourceCache m_resourceCache;
+	
+	private final ConcurrentMap<String, ResolvedPath> m_resolvedPaths = new ConcurrentHashMap<>();
+	
+	//Advanced before resolved paths are invalidated, so that a resolution which raced with a change is not kept.
+	private final AtomicLong m_resolvedPathsGeneration = new AtomicLong();
+	private final List<IAssetChangeObserver> m_changeObservers = new CopyOnWriteArrayList<>();
 	
 	public BuilderAssetStreamFactory(URI assetSource)
 	{
-	  m_assetSource = new File(assetSource);
+		this(assetSource, false);
+	}
+	
+	/**
+	 * @param assetSources The root directories assets are resolved against, in order of precedence.
+	 */
+	public BuilderAssetStreamFactory(List<URI> assetSources)
+	{
+		this(assetSources, false, DEFAULT_RESOURCE_CACHE_SIZE);
+	}
+	
+	/**
+	 * @param assetSource The root directory assets are resolved against.
+	 * @param mapFiles Whether file assets should be served from shared memory mappings
+	 *                 rather than through a dedicated {@link FileInputStream} per load.
+	 */
+	public BuilderAssetStreamFactory(URI assetSource, boolean mapFiles)
+	{
+		this(assetSource, mapFiles, DEFAULT_RESOURCE_CACHE_SIZE);
+	}
+	
+	/**
+	 * @param assetSource The root directory assets are resolved against.
+	 * @param mapFiles Whether file assets should be served from shared memory mappings
+	 *                 rather than through a dedicated {@link FileInputStream} per load.
+	 * @param resourceCacheSize The maximum number of bytes of local classpath resources to
+	 *                          keep in memory, or zero to always read them from the class loader.
+	 */
+	public BuilderAssetStreamFactory(URI assetSource, boolean mapFiles, long resourceCacheSize)
+	{
+		this(Collections.singletonList(assetSource), mapFiles, resourceCacheSize);
+	}
+	
+	/**
+	 * @param assetSource The root directory assets are resolved against.
+	 * @param mapFiles Whether file assets should be served from shared memory mappings
+	 *                 rather than through a dedicated {@link FileInputStream} per load.
+	 * @param resourceCacheSize The maximum number of bytes of local classpath resources to
+	 *                          keep in memory, or zero to always read them from the class loader.
+	 * @param watchRoots Whether the root should be watched, see {@link #BuilderAssetStreamFactory(List, boolean, long, boolean)}.
+	 */
+	public BuilderAssetStreamFactory(URI assetSource, boolean mapFiles, long resourceCacheSize, boolean watchRoots)
+	{
+		this(Collections.singletonList(assetSource), mapFiles, resourceCacheSize, watchRoots);
+	}
+	
+	/**
+	 * @param assetSources The root directories assets are resolved against, in order of precedence.
+	 * @param mapFiles Whether file assets should be served from shared memory mappings
+	 *                 rather than through a dedicated {@link FileInputStream} per load.
+	 * @param resourceCacheSize The maximum number of bytes of local classpath resources to
+	 *                          keep in memory, or zero to always read them from the class loader.
+	 */
+	public BuilderAssetStreamFactory(List<URI> assetSources, boolean mapFiles, long resourceCacheSize)
+	{
+		this(assetSources, mapFiles, resourceCacheSize, true);
+	}
+	
+	/**
+	 * Assets are resolved against the first root that provides them.
+	 * 
+	 * When the roots are watched, each root's directories are registered with
+	 * a watch service and its files are indexed in the background, such that
+	 * once every root is watched, resolving a path, including one that is not
+	 * provided by any root, does not probe the file system. Until then, and
+	 * when the roots are not watched, paths are resolved by probing the file
+	 * system. Tools that run once over a tree should not watch its roots.
+	 * 
+	 * @param assetSources The root directories assets are resolved against, in order of precedence.
+	 * @param mapFiles Whether file assets should be served from shared memory mappings
+	 *                 rather than through a dedicated {@link FileInputStream} per load.
+	 * @param resourceCacheSize The maximum number of bytes of local classpath resources to
+	 *                          keep in memory, or zero to always read them from the class loader.
+	 * @param watchRoots Whether the roots should be watched and indexed.
+	 */
+	public BuilderAssetStreamFactory(List<URI> assetSources, boolean mapFiles, long resourceCacheSize, boolean watchRoots)
+	{
+		if(assetSources.isEmpty())
+			throw new NoRootAssignedException();
+		
+		m_mappedFiles = mapFiles ? new MappedFileCache() : null;
+		m_resourceCache = new ResourceCache(resourceCacheSize);
+		
+		for(URI source : assetSources)
+			m_assetRoots.add(new AssetRootIndex(new File(source), new ResolvedPathInvalidator(new File(source)), watchRoots));
+	}
+	
+	@Override
+	public void dispose()
+	{
+		for(AssetRootIndex root : m_assetRoots)
+			root.dispose();
+		
+		m_resolvedPaths.clear();
+		m_resourceCache.clear();
+	}
+	
+	public ResourceCache getResourceCache()
+	{
+		return m_resourceCache;
+	}
+	
+	/**
+	 * @param observer Notified, from the threads watching the asset roots, of changes to assets under them.
+	 */
+	public void addAssetChangeObserver(IAssetChangeObserver observer)
+	{
+		m_changeObservers.add(observer);
+	}
+	
+	public void removeAssetChangeObserver(IAssetChangeObserver observer)
+	{
+		m_changeObservers.remove(observer);
+	}
+	
+	/**
+	 * @return Whether changes under every root are observed, such that there is something to invalidate resolved paths with.
+	 */
+	private boolean isCachingResolvedPaths()
+	{
+		for(AssetRootIndex root : m_assetRoots)
+		{
+			if(!root.isWatched())
+				return false;
+		}
+		
+		return true;
 	}
 	
-	private File resolvePath(String relativePath)
+	/**
+	 * @return The file the path resolves to, or null if no root provides it.
+	 */
+	private File resolveInRoots(String relativePath)
 	{
-		File file = new File(m_assetSource, relativePath);
+		ResolvedPath resolved = m_resolvedPaths.get(relativePath);
+		
+		if(resolved != null)
+			return resolved.m_file;
+		
+		//Only a lookup begun once every root is watched can rely on being told of changes it raced with.
+		boolean isCaching = isCachingResolvedPaths();
+		long generation = m_resolvedPathsGeneration.get();
+		resolved = new ResolvedPath(relativePath);
+		File file = null;
+		
+		for(AssetRootIndex root : m_assetRoots)
+		{
+			file = find(root, relativePath, resolved.m_normalizedPath);
+			
+			if(file == null && !relativePath.endsWith(COMPRESSED_EXTENSION))
+				file = find(root, relativePath + COMPRESSED_EXTENSION, resolved.m_normalizedPath + COMPRESSED_EXTENSION);
+			
+			if(file != null)
+				break;
+		}
+		
+		//Misses are cached as well, such that repeated lookups of a missing asset fail fast.
+		if(isCaching)
+		{
+			ResolvedPath entry = resolved.resolve(file);
+			m_resolvedPaths.put(relativePath, entry);
 			
-		if(file.exists())
-			return file;
+			//An invalidation that began after the lookup may have missed the entry; it can not be trusted.
+			if(m_resolvedPathsGeneration.get() != generation)
+				m_resolvedPaths.remove(relativePath, entry);
+		}
+		
+		return file;
+	}
+	
+	private static File find(AssetRootIndex root, String relativePath, String normalizedPath)
+	{
+		Boolean isPresent = root.contains(normalizedPath);
+		File candidate = new File(root.getRoot(), relativePath);
 		
-		return new File(relativePath);
+		return (isPresent == null ? candidate.exists() : isPresent) ? candidate : null;
+	}
+	
+	private static boolean isCompressedSibling(URI path, File file)
+	{
+		return file.getName().endsWith(COMPRESSED_EXTENSION) && !path.getPath().endsWith(COMPRESSED_EXTENSION);
+	}
+	
+	/**
+	 * @return Whether the asset exists, determined without constructing a stream or exception.
+	 */
+	public boolean exists(URI path)
+	{
+		if("local".equals(path.getScheme()))
+		{
+			String classPath = path.getPath().startsWith("/") ? path.getPath().substring(1) : path.getPath();
+			
+			return m_resourceCache.get(classPath) != null || resourceExists(classPath);
+		} else if(!new File(path.getPath()).isAbsolute())
+			return resolveInRoots(path.getPath()) != null;
+		else
+			return new File(path.getPath()).exists();
+	}
+	
+	/**
+	 * @return The path an asset is requested by, which for a compressed asset is its path without the compressed extension.
+	 */
+	public static String getUncompressedPath(String path)
+	{
+		if(path.endsWith(COMPRESSED_EXTENSION))
+			return path.substring(0, path.length() - COMPRESSED_EXTENSION.length());
+		
+		return path;
+	}
+	
+	private boolean resourceExists(String classPath)
+	{
+		ClassLoader loader = this.getClass().getClassLoader();
+		
+		if(loader.getResource(classPath) != null)
+			return true;
+		
+		return !classPath.endsWith(COMPRESSED_EXTENSION) && loader.getResource(classPath + COMPRESSED_EXTENSION) != null;
+	}
+	
+	/**
+	 * Opens a local classpath resource, or decompresses its compressed sibling if only that is present.
+	 * 
+	 * @return The resource's contents, or null if neither the resource nor its compressed sibling is present.
+	 */
+	private InputStream openResource(String classPath) throws IOException
+	{
+		ClassLoader loader = this.getClass().getClassLoader();
+		InputStream is = loader.getResourceAsStream(classPath);
+		
+		if(is != null || classPath.endsWith(COMPRESSED_EXTENSION))
+			return is;
+		
+		InputStream compressed = loader.getResourceAsStream(classPath + COMPRESSED_EXTENSION);
+		
+		if(compressed == null)
+			return null;
+		
+		try
+		{
+			return new GZIPInputStream(compressed, DECOMPRESSION_BUFFER_SIZE);
+		} catch (IOException e)
+		{
+			compressed.close();
+			throw e;
+		}
+	}
+	
+	private InputStream open(File file) throws IOException
+	{
+		if(m_mappedFiles == null)
+			return new FileInputStream(file);
+		
+		return m_mappedFiles.open(file);
 	}
 	
 	@Override
@@ -57,31 +343,289 @@ public final class BuilderAssetStreamFactory implements IAssetStreamFactory
 			{
 				String classPath = path.getPath().startsWith("/") ? path.getPath().substring(1) : path.getPath();
 				
-				InputStream is = this.getClass().getClassLoader().getResourceAsStream(classPath);
+				byte[] cached = m_resourceCache.get(classPath);
+				
+				if(cached != null)
+					return new ByteArrayInputStream(cached);
+				
+				InputStream is = openResource(classPath);
 			
 				if (is == null)
 					throw new AssetStreamConstructionException(path, new UnresolvedResourcePathException());
 				
-				return is;
+				if(m_resourceCache.getCapacity() <= 0)
+					return is;
+				
+				try
+				{
+					byte[] contents = ResourceCache.readFully(is);
+					m_resourceCache.put(classPath, contents);
+					
+					return new ByteArrayInputStream(contents);
+				} finally
+				{
+					is.close();
+				}
 			}
 			else
 			{
-				if(!new File(path.getPath()).isAbsolute())
-					return new FileInputStream(resolvePath(path.getPath()));
-				else
-					return new FileInputStream(new File(path.getPath()));
+				File file = locate(path);
+				
+				if(file == null)
+					throw unresolved(path);
+				
+				try
+				{
+					if(isCompressedSibling(path, file))
+						return new GZIPInputStream(open(file), DECOMPRESSION_BUFFER_SIZE);
+					
+					return open(file);
+				} catch (FileNotFoundException ex)
+				{
+					m_resolvedPaths.remove(path.getPath());
+					throw ex;
+				}
 			}
 		} catch (FileNotFoundException ex)
 		{
 			throw new AssetStreamConstructionException(path, new UnresolvedResourcePathException());
+		} catch (IOException ex)
+		{
+			throw new AssetStreamConstructionException(path, ex);
+		}
+	}
+	
+	/**
+	 * Opens an asset for random access, such that only the ranges of it that are
+	 * needed have to be read. File assets are opened as a {@link FileChannel}, while
+	 * local classpath resources, which the class loader only provides sequentially,
+	 * are read into memory once and served from a read-only view of their contents.
+	 */
+	public SeekableByteChannel createChannel(URI path) throws AssetStreamConstructionException
+	{
+		return createChannel(path, true);
+	}
+	
+	/**
+	 * Opens an asset for random access, as {@link #createChannel(URI)} does, but
+	 * only if it is a local classpath resource or is provided by one of the asset
+	 * roots. Absolute paths and paths that leave the roots are never resolved, such
+	 * that no other file can be opened.
+	 */
+	public SeekableByteChannel createRootChannel(URI path) throws AssetStreamConstructionException
+	{
+		return createChannel(path, false);
+	}
+	
+	private SeekableByteChannel createChannel(URI path, boolean isUnrestricted) throws AssetStreamConstructionException
+	{
+		try
+		{
+			if("local".equals(path.getScheme()))
+			{
+				String classPath = path.getPath().startsWith("/") ? path.getPath().substring(1) : path.getPath();
+				
+				byte[] contents = m_resourceCache.get(classPath);
+				
+				if(contents == null)
+				{
+					try(InputStream is = openResource(classPath))
+					{
+						if (is == null)
+							throw new AssetStreamConstructionException(path, new UnresolvedResourcePathException());
+						
+						contents = ResourceCache.readFully(is);
+					}
+					
+					m_resourceCache.put(classPath, contents);
+				}
+				
+				return new ByteArrayChannel(contents);
+			}
+			else
+			{
+				File file = isUnrestricted ? locate(path) : locateInRoots(path);
+				
+				if(file == null)
+					throw unresolved(path);
+				
+				try
+				{
+					//A compressed stream cannot be seeked, so it is decompressed in its entirety.
+					if(isCompressedSibling(path, file))
+					{
+						try(InputStream is = new GZIPInputStream(open(file), DECOMPRESSION_BUFFER_SIZE))
+						{
+							return new ByteArrayChannel(ResourceCache.readFully(is));
+						}
+					}
+					
+					return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				} catch (FileNotFoundException | NoSuchFileException ex)
+				{
+					m_resolvedPaths.remove(path.getPath());
+					throw ex;
+				}
+			}
+		} catch (FileNotFoundException | NoSuchFileException ex)
+		{
+			throw new AssetStreamConstructionException(path, new UnresolvedResourcePathException());
+		} catch (IOException ex)
+		{
+			throw new AssetStreamConstructionException(path, ex);
+		}
+	}
+	
+	/**
+	 * @return The file the asset path refers to, or null if the path is relative and no root provides it.
+	 */
+	private File locate(URI path)
+	{
+		if(new File(path.getPath()).isAbsolute())
+			return new File(path.getPath());
+		
+		return resolveInRoots(path.getPath());
+	}
+	
+	/**
+	 * @return The exception reporting that no root provides the asset. Misses that are cached share
+	 *         the exception first constructed for them, so that repeatedly loading a missing asset
+	 *         does not capture a stack trace each time.
+	 */
+	private AssetStreamConstructionException unresolved(URI path)
+	{
+		ResolvedPath resolved = path.getPath() == null ? null : m_resolvedPaths.get(path.getPath());
+		
+		if(resolved == null || resolved.m_file != null)
+			return new AssetStreamConstructionException(path, new UnresolvedResourcePathException());
+		
+		UnresolvedAsset unresolved = resolved.m_unresolved;
+		
+		if(unresolved == null || !unresolved.m_path.equals(path))
+			resolved.m_unresolved = unresolved = new UnresolvedAsset(path, new AssetStreamConstructionException(path, new UnresolvedResourcePathException()));
+		
+		return unresolved.m_exception;
+	}
+	
+	/**
+	 * @return The file under an asset root the asset path refers to, or null if no root provides it.
+	 */
+	private File locateInRoots(URI path)
+	{
+		String relativePath = path.getPath();
+		
+		if(relativePath == null || new File(relativePath).isAbsolute() || ("/" + path.normalize().getPath() + "/").contains("/../"))
+			return null;
+		
+		return resolveInRoots(relativePath);
+	}
+	
+	private static final class ResolvedPath
+	{
+		private final String m_normalizedPath;
+		private final File m_file;
+		
+		private volatile UnresolvedAsset m_unresolved = null;
+		
+		public ResolvedPath(String relativePath)
+		{
+			this(new File(relativePath).toPath().normalize().toString().replace(File.separatorChar, '/'), null);
+		}
+		
+		private ResolvedPath(String normalizedPath, File file)
+		{
+			m_normalizedPath = normalizedPath;
+			m_file = file;
+		}
+		
+		public ResolvedPath resolve(File file)
+		{
+			return new ResolvedPath(m_normalizedPath, file);
+		}
+		
+		public boolean isAffectedBy(String changedPath)
+		{
+			return m_normalizedPath.equals(changedPath) || m_normalizedPath.startsWith(changedPath + "/") ||
+					changedPath.equals(m_normalizedPath + COMPRESSED_EXTENSION);
+		}
+	}
+	
+	private static final class UnresolvedAsset
+	{
+		private final URI m_path;
+		private final AssetStreamConstructionException m_exception;
+		
+		public UnresolvedAsset(URI path, AssetStreamConstructionException exception)
+		{
+			m_path = path;
+			m_exception = exception;
 		}
 	}
 	
+	private final class ResolvedPathInvalidator implements IAssetSourceObserver
+	{
+		private final File m_root;
+		
+		public ResolvedPathInvalidator(File root)
+		{
+			m_root = root;
+		}
+		
+		@Override
+		public void changed(String relativePath)
+		{
+			if(m_mappedFiles != null)
+				m_mappedFiles.invalidate(new File(m_root, relativePath));
+			
+			m_resolvedPathsGeneration.incrementAndGet();
+			
+			for(Iterator<ResolvedPath> it = m_resolvedPaths.values().iterator(); it.hasNext();)
+			{
+				if(it.next().isAffectedBy(relativePath))
+					it.remove();
+			}
+			
+			for(IAssetChangeObserver o : m_changeObservers)
+				o.changed(relativePath);
+		}
+
+		@Override
+		public void overflow()
+		{
+			if(m_mappedFiles != null)
+				m_mappedFiles.clear();
+			
+			m_resolvedPathsGeneration.incrementAndGet();
+			m_resolvedPaths.clear();
+			
+			for(IAssetChangeObserver o : m_changeObservers)
+				o.overflow();
+		}
+	}
+	
+	public interface IAssetChangeObserver
+	{
+		/**
+		 * @param relativePath The path, relative to the asset roots and using '/' as its separator,
+		 *                     of the asset or directory that was created, deleted or modified.
+		 */
+		void changed(String relativePath);
+		
+		/**
+		 * Invoked when changes may have been missed, such that any asset may have changed.
+		 */
+		void overflow();
+	}
+	
 	public final class UnresolvedResourcePathException extends Exception
 	{
 		private static final long serialVersionUID = 1L;
 
-		private UnresolvedResourcePathException() { }
+		//Missing assets are routine while editing, so no stack trace is captured for them.
+		private UnresolvedResourcePathException()
+		{
+			super(null, null, false, false);
+		}
 	}
 	
 	public final class NoRootAssignedException extends RuntimeException
@@ -0,0 +1,118 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only seekable channel over the contents of a byte array. The array is
+ * shared rather than copied, and must not be modified while the channel is open.
+ *
+ * @author Jeremy
+ */
+final class ByteArrayChannel implements SeekableByteChannel
+{
+	private final byte[] m_contents;
+	
+	private long m_position = 0;
+	private boolean m_isOpen = true;
+	
+	public ByteArrayChannel(byte[] contents)
+	{
+		m_contents = contents;
+	}
+	
+	private void ensureOpen() throws ClosedChannelException
+	{
+		if(!m_isOpen)
+			throw new ClosedChannelException();
+	}
+	
+	@Override
+	public synchronized int read(ByteBuffer destination) throws IOException
+	{
+		ensureOpen();
+		
+		if(m_position >= m_contents.length)
+			return -1;
+		
+		int length = (int)Math.min(destination.remaining(), m_contents.length - m_position);
+		destination.put(m_contents, (int)m_position, length);
+		m_position += length;
+		
+		return length;
+	}
+	
+	@Override
+	public int write(ByteBuffer source) throws IOException
+	{
+		throw new NonWritableChannelException();
+	}
+	
+	@Override
+	public synchronized long position() throws IOException
+	{
+		ensureOpen();
+		
+		return m_position;
+	}
+	
+	@Override
+	public synchronized SeekableByteChannel position(long position) throws IOException
+	{
+		ensureOpen();
+		
+		if(position < 0)
+			throw new IllegalArgumentException("Position must not be negative.");
+		
+		m_position = position;
+		
+		return this;
+	}
+	
+	@Override
+	public synchronized long size() throws IOException
+	{
+		ensureOpen();
+		
+		return m_contents.length;
+	}
+	
+	@Override
+	public SeekableByteChannel truncate(long size) throws IOException
+	{
+		throw new NonWritableChannelException();
+	}
+	
+	@Override
+	public synchronized boolean isOpen()
+	{
+		return m_isOpen;
+	}
+	
+	@Override
+	public synchronized void close()
+	{
+		m_isOpen = false;
+	}
+}
@@ -0,0 +1,123 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} view over a {@link ByteBuffer}. Reads never copy the
+ * backing buffer into an intermediate array, which makes this suitable for
+ * serving memory-mapped or cached asset data.
+ *
+ * @author Jeremy
+ */
+public final class ByteBufferInputStream extends InputStream
+{
+	private final ByteBuffer m_buffer;
+	private final Closeable m_releaseHandler;
+	
+	private boolean m_isClosed = false;
+	
+	public ByteBufferInputStream(ByteBuffer buffer)
+	{
+		this(buffer, null);
+	}
+	
+	/**
+	 * @param buffer The buffer to read from. Its position and limit are not modified.
+	 * @param releaseHandler Invoked once when this stream is closed, may be null.
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer, Closeable releaseHandler)
+	{
+		m_buffer = buffer.duplicate();
+		m_releaseHandler = releaseHandler;
+	}
+	
+	@Override
+	public int read()
+	{
+		if(!m_buffer.hasRemaining())
+			return -1;
+		
+		return m_buffer.get() & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len)
+	{
+		if(len == 0)
+			return 0;
+		
+		if(!m_buffer.hasRemaining())
+			return -1;
+		
+		int count = Math.min(len, m_buffer.remaining());
+		m_buffer.get(b, off, count);
+		
+		return count;
+	}
+	
+	@Override
+	public long skip(long n)
+	{
+		int count = (int)Math.max(0, Math.min(n, m_buffer.remaining()));
+		m_buffer.position(m_buffer.position() + count);
+		
+		return count;
+	}
+	
+	@Override
+	public int available()
+	{
+		return m_buffer.remaining();
+	}
+	
+	@Override
+	public boolean markSupported()
+	{
+		return true;
+	}
+	
+	@Override
+	public synchronized void mark(int readLimit)
+	{
+		m_buffer.mark();
+	}
+	
+	@Override
+	public synchronized void reset()
+	{
+		m_buffer.reset();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		if(m_isClosed)
+			return;
+		
+		m_isClosed = true;
+		
+		if(m_releaseHandler != null)
+			m_releaseHandler.close();
+	}
+}
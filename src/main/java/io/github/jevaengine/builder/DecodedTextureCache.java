@@ -0,0 +1,348 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of decoded textures. Textures are decoded once and their
+ * pixels are stored, as ARGB, in a cache directory under the SHA-1 hash of the
+ * encoded texture. Later loads of a texture with the same contents, including
+ * loads in later sessions, memory map the decoded pixels rather than decoding
+ * the texture again. Since entries are keyed by content, editing a texture
+ * simply results in a new entry and stale entries are never served.
+ * 
+ * The entry a texture was last loaded from is discarded when the texture is
+ * found to have changed. The cache directory is also limited in size; once it
+ * exceeds its limit, the least recently used entries are discarded.
+ *
+ * @author Jeremy
+ */
+public final class DecodedTextureCache
+{
+	private static final int MAGIC = 0x4A545843;
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 16;
+	private static final String ENTRY_EXTENSION = ".argb";
+	private static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024;
+	
+	private final Logger m_logger = LoggerFactory.getLogger(DecodedTextureCache.class);
+	
+	private final IAssetStreamFactory m_assetFactory;
+	private final File m_directory;
+	private final long m_maxSize;
+	
+	//The entry each texture was last loaded from, so it can be discarded once the texture changes.
+	private final ConcurrentMap<URI, File> m_entries = new ConcurrentHashMap<>();
+	private final AtomicLong m_size = new AtomicLong();
+	
+	private final AtomicLong m_hits = new AtomicLong();
+	private final AtomicLong m_misses = new AtomicLong();
+	
+	/**
+	 * @param directory The directory decoded textures are stored in, which is created if it does not exist.
+	 */
+	public DecodedTextureCache(IAssetStreamFactory assetFactory, File directory)
+	{
+		this(assetFactory, directory, DEFAULT_MAX_SIZE);
+	}
+	
+	/**
+	 * @param directory The directory decoded textures are stored in, which is created if it does not exist.
+	 * @param maxSize The size, in bytes, the entries in the directory are limited to.
+	 */
+	public DecodedTextureCache(IAssetStreamFactory assetFactory, File directory, long maxSize)
+	{
+		m_assetFactory = assetFactory;
+		m_directory = directory;
+		m_maxSize = maxSize;
+		
+		if(!directory.isDirectory() && !directory.mkdirs())
+			m_logger.warn("Unable to create decoded texture cache directory " + directory + ". Textures will be decoded on every load.");
+		
+		trim(null);
+	}
+	
+	public File getDirectory()
+	{
+		return m_directory;
+	}
+	
+	public long getHitCount()
+	{
+		return m_hits.get();
+	}
+	
+	public long getMissCount()
+	{
+		return m_misses.get();
+	}
+	
+	/**
+	 * @return The total size, in bytes, of the entries in the cache directory.
+	 */
+	public long getSize()
+	{
+		return m_size.get();
+	}
+	
+	/**
+	 * @return The texture as an image of type {@link BufferedImage#TYPE_INT_ARGB}.
+	 */
+	public BufferedImage load(URI name) throws IOException, AssetStreamConstructionException
+	{
+		byte[] encoded;
+		
+		try(InputStream is = m_assetFactory.create(name))
+		{
+			encoded = ResourceCache.readFully(is);
+		}
+		
+		File entry = new File(m_directory, hash(encoded) + ENTRY_EXTENSION);
+		File previous = m_entries.put(name, entry);
+		
+		if(previous != null && !previous.equals(entry) && !m_entries.containsValue(previous))
+			discard(previous);
+		
+		if(entry.isFile())
+		{
+			try
+			{
+				BufferedImage image = read(entry);
+				m_hits.incrementAndGet();
+				
+				//Entries are evicted in order of their modification time, which serves as their last use.
+				entry.setLastModified(System.currentTimeMillis());
+				
+				return image;
+			} catch (IOException e)
+			{
+				m_logger.warn("Discarding unreadable decoded texture " + entry + " of " + name, e);
+			}
+		}
+		
+		m_misses.incrementAndGet();
+		
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoded));
+		
+		if(decoded == null)
+			throw new IOException("Texture is not in a supported image format: " + name);
+		
+		BufferedImage image = toArgb(decoded);
+		
+		try
+		{
+			long replaced = entry.length();
+			write(entry, image);
+			
+			if(m_size.addAndGet(entry.length() - replaced) > m_maxSize)
+				trim(entry);
+		} catch (IOException e)
+		{
+			m_logger.warn("Unable to store decoded texture " + name + " in cache.", e);
+		}
+		
+		return image;
+	}
+	
+	private void discard(File entry)
+	{
+		long length = entry.length();
+		
+		if(entry.delete())
+			m_size.addAndGet(-length);
+	}
+	
+	/**
+	 * Discards the least recently used entries until the cache is within its size limit.
+	 * 
+	 * @param retain An entry that is not to be discarded, such as the one just stored, or null.
+	 */
+	private synchronized void trim(File retain)
+	{
+		File[] files = m_directory.listFiles();
+		
+		if(files == null)
+			return;
+		
+		List<StoredEntry> entries = new ArrayList<>();
+		long size = 0;
+		
+		for(File file : files)
+		{
+			if(!file.getName().endsWith(ENTRY_EXTENSION))
+				continue;
+			
+			StoredEntry entry = new StoredEntry(file);
+			size += entry.m_length;
+			
+			if(!file.equals(retain))
+				entries.add(entry);
+		}
+		
+		Collections.sort(entries);
+		
+		for(int i = 0; i < entries.size() && size > m_maxSize; i++)
+		{
+			StoredEntry entry = entries.get(i);
+			
+			if(entry.m_file.delete())
+				size -= entry.m_length;
+		}
+		
+		m_size.set(size);
+	}
+	
+	private static BufferedImage toArgb(BufferedImage image)
+	{
+		if(image.getType() == BufferedImage.TYPE_INT_ARGB)
+			return image;
+		
+		BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = argb.createGraphics();
+		
+		try
+		{
+			g.drawImage(image, 0, 0, null);
+		} finally
+		{
+			g.dispose();
+		}
+		
+		return argb;
+	}
+	
+	private static BufferedImage read(File entry) throws IOException
+	{
+		try(RandomAccessFile file = new RandomAccessFile(entry, "r");
+			FileChannel channel = file.getChannel())
+		{
+			long length = channel.size();
+			
+			if(length < HEADER_LENGTH)
+				throw new IOException("Truncated decoded texture header.");
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				throw new IOException("Not a decoded texture of a supported version.");
+			
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			
+			if(width <= 0 || height <= 0 || length != HEADER_LENGTH + 4L * width * height)
+				throw new IOException("Decoded texture dimensions do not match its length.");
+			
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			buffer.asIntBuffer().get(((DataBufferInt)image.getRaster().getDataBuffer()).getData());
+			
+			return image;
+		}
+	}
+	
+	private void write(File entry, BufferedImage image) throws IOException
+	{
+		//Written to a temporary file and moved into place so concurrent loads never see a partial entry.
+		File temp = File.createTempFile("texture", ".tmp", m_directory);
+		
+		try
+		{
+			ByteBuffer contents = ByteBuffer.allocate(HEADER_LENGTH + 4 * image.getWidth() * image.getHeight());
+			contents.putInt(MAGIC).putInt(VERSION).putInt(image.getWidth()).putInt(image.getHeight());
+			contents.asIntBuffer().put(((DataBufferInt)image.getRaster().getDataBuffer()).getData());
+			contents.rewind();
+			
+			try(FileOutputStream out = new FileOutputStream(temp);
+				FileChannel channel = out.getChannel())
+			{
+				while(contents.hasRemaining())
+					channel.write(contents);
+			}
+			
+			Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally
+		{
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+	
+	private static String hash(byte[] contents)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(contents);
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			
+			for(byte b : digest)
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static final class StoredEntry implements Comparable<StoredEntry>
+	{
+		private final File m_file;
+		private final long m_length;
+		private final long m_lastUsed;
+		
+		public StoredEntry(File file)
+		{
+			m_file = file;
+			m_length = file.length();
+			m_lastUsed = file.lastModified();
+		}
+		
+		@Override
+		public int compareTo(StoredEntry other)
+		{
+			return Long.compare(m_lastUsed, other.m_lastUsed);
+		}
+	}
+}
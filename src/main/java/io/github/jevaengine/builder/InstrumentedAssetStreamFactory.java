@@ -0,0 +1,167 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.AssetStreamMetrics.SchemeMetrics;
+import io.github.jevaengine.builder.util.StripedCounter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorates an asset stream factory, counting loads, failures, bytes read and
+ * load latency per scheme as well as how often each asset is loaded. The
+ * counters can be published to the platform MBean server under
+ * {@code io.github.jevaengine.builder:type=AssetStreamMetrics}.
+ *
+ * @author Jeremy
+ */
+public final class InstrumentedAssetStreamFactory implements IAssetStreamFactory, IDisposable
+{
+	private static final String OBJECT_NAME_DOMAIN = "io.github.jevaengine.builder";
+	
+	private final Logger m_logger = LoggerFactory.getLogger(InstrumentedAssetStreamFactory.class);
+	
+	private final IAssetStreamFactory m_assetFactory;
+	private final AssetStreamMetrics m_metrics;
+	
+	private ObjectName m_registeredName;
+	
+	public InstrumentedAssetStreamFactory(IAssetStreamFactory assetFactory)
+	{
+		m_assetFactory = assetFactory;
+		m_metrics = new AssetStreamMetrics(assetFactory instanceof BuilderAssetStreamFactory ? ((BuilderAssetStreamFactory)assetFactory).getResourceCache() : null);
+	}
+	
+	public AssetStreamMetrics getMetrics()
+	{
+		return m_metrics;
+	}
+	
+	/**
+	 * Publishes the metrics to the platform MBean server, replacing any metrics
+	 * already registered under the same name.
+	 * 
+	 * @param name The value of the name key of the registered object name.
+	 */
+	public synchronized void register(String name) throws JMException
+	{
+		unregister();
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(OBJECT_NAME_DOMAIN, "type", "AssetStreamMetrics");
+		objectName = ObjectName.getInstance(objectName.getCanonicalName() + ",name=" + ObjectName.quote(name));
+		
+		if(server.isRegistered(objectName))
+			server.unregisterMBean(objectName);
+		
+		server.registerMBean(m_metrics, objectName);
+		m_registeredName = objectName;
+	}
+	
+	public synchronized void unregister()
+	{
+		if(m_registeredName == null)
+			return;
+		
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(m_registeredName);
+		} catch (JMException e)
+		{
+			m_logger.warn("Unable to unregister asset stream metrics " + m_registeredName, e);
+		}
+		
+		m_registeredName = null;
+	}
+	
+	@Override
+	public void dispose()
+	{
+		unregister();
+		
+		if(m_assetFactory instanceof IDisposable)
+			((IDisposable)m_assetFactory).dispose();
+	}
+	
+	@Override
+	public InputStream create(URI name) throws AssetStreamConstructionException
+	{
+		SchemeMetrics scheme = m_metrics.getScheme(name);
+		
+		scheme.m_loads.increment();
+		m_metrics.recordAsset(name);
+		
+		long start = System.nanoTime();
+		
+		try
+		{
+			return new CountingInputStream(m_assetFactory.create(name), scheme.m_bytesRead);
+		} catch (AssetStreamConstructionException | RuntimeException e)
+		{
+			scheme.m_failures.increment();
+			throw e;
+		} finally
+		{
+			scheme.m_latency.record(System.nanoTime() - start);
+		}
+	}
+	
+	private static final class CountingInputStream extends FilterInputStream
+	{
+		private final StripedCounter m_bytesRead;
+		
+		public CountingInputStream(InputStream source, StripedCounter bytesRead)
+		{
+			super(source);
+			m_bytesRead = bytesRead;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			
+			if(b >= 0)
+				m_bytesRead.increment();
+			
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException
+		{
+			int read = super.read(buffer, offset, length);
+			
+			if(read > 0)
+				m_bytesRead.add(read);
+			
+			return read;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Maintains read-only memory mappings of asset files. Concurrent loads of the
+ * same file share a single mapping, which is reference counted and dropped
+ * once the last stream reading from it has been closed.
+ * 
+ * A mapped file that is truncated while being read faults rather than failing
+ * the read, so files modified within the last few seconds, which are likely
+ * being edited, are read through a {@link FileInputStream} instead. Small
+ * files, which gain little from being mapped, are read the same way.
+ *
+ * @author Jeremy
+ */
+final class MappedFileCache
+{
+	private static final long MIN_MAPPED_LENGTH = 64 * 1024;
+	private static final long MIN_UNMODIFIED_MILLISECONDS = 10 * 1000;
+	
+	private final Map<File, MappedFile> m_mappings = new HashMap<>();
+	
+	public InputStream open(File file) throws IOException
+	{
+		long length = file.length();
+		
+		if(length < MIN_MAPPED_LENGTH || length > Integer.MAX_VALUE || System.currentTimeMillis() - file.lastModified() < MIN_UNMODIFIED_MILLISECONDS)
+			return new FileInputStream(file);
+		
+		final MappedFile mapping = acquire(file);
+		
+		return new MappedFileInputStream(new ByteBufferInputStream(mapping.m_buffer, new Closeable() {
+			@Override
+			public void close()
+			{
+				release(mapping);
+			}
+		}), file);
+	}
+	
+	/**
+	 * Drops the mappings of the file, or of every file under it if it is a
+	 * directory, such that later loads map it again. Streams already reading
+	 * from a dropped mapping continue to do so until they are closed.
+	 */
+	public synchronized void invalidate(File file)
+	{
+		Path changed = file.toPath().toAbsolutePath().normalize();
+		
+		for(Iterator<File> it = m_mappings.keySet().iterator(); it.hasNext();)
+		{
+			if(it.next().toPath().toAbsolutePath().normalize().startsWith(changed))
+				it.remove();
+		}
+	}
+	
+	public synchronized void clear()
+	{
+		m_mappings.clear();
+	}
+	
+	private synchronized MappedFile acquire(File file) throws IOException
+	{
+		MappedFile mapping = m_mappings.get(file);
+		
+		if(mapping == null || !mapping.isCurrent())
+		{
+			mapping = new MappedFile(file);
+			m_mappings.put(file, mapping);
+		}
+		
+		mapping.m_references++;
+		
+		return mapping;
+	}
+	
+	private synchronized void release(MappedFile mapping)
+	{
+		mapping.m_references--;
+		
+		if(mapping.m_references <= 0 && m_mappings.get(mapping.m_file) == mapping)
+			m_mappings.remove(mapping.m_file);
+	}
+	
+	private static final class MappedFile
+	{
+		private final File m_file;
+		private final long m_lastModified;
+		private final MappedByteBuffer m_buffer;
+		
+		private int m_references = 0;
+		
+		public MappedFile(File file) throws IOException
+		{
+			m_file = file;
+			m_lastModified = file.lastModified();
+			
+			try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel())
+			{
+				if(channel.size() > Integer.MAX_VALUE)
+					throw new IOException("Asset is too large to be memory mapped: " + file);
+				
+				m_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+		
+		public boolean isCurrent()
+		{
+			return m_file.lastModified() == m_lastModified && m_file.length() == m_buffer.capacity();
+		}
+	}
+	
+	/**
+	 * Reports the fault raised when reading beyond the end of a file truncated
+	 * beneath its mapping as a failed read, rather than as an error.
+	 */
+	private static final class MappedFileInputStream extends FilterInputStream
+	{
+		private final File m_file;
+		
+		public MappedFileInputStream(InputStream source, File file)
+		{
+			super(source);
+			m_file = file;
+		}
+		
+		private IOException truncated(InternalError e)
+		{
+			return new IOException("Mapped asset was truncated while being read: " + m_file, e);
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			try
+			{
+				return super.read();
+			} catch (InternalError e)
+			{
+				throw truncated(e);
+			}
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			try
+			{
+				return super.read(b, off, len);
+			} catch (InternalError e)
+			{
+				throw truncated(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Serves assets out of a single memory-mapped asset pack, as described by
+ * {@link AssetPack}. Entries are located with a binary search over the pack's
+ * sorted index. Requests for assets that are not in the pack are forwarded to
+ * a fallback factory, if one has been provided.
+ *
+ * @author Jeremy
+ */
+public final class PackAssetStreamFactory implements IAssetStreamFactory
+{
+	private final MappedByteBuffer m_pack;
+	private final IAssetStreamFactory m_fallback;
+	
+	private final String[] m_paths;
+	private final int[] m_offsets;
+	private final int[] m_lengths;
+	
+	public PackAssetStreamFactory(File pack) throws IOException
+	{
+		this(pack, null);
+	}
+	
+	public PackAssetStreamFactory(File pack, IAssetStreamFactory fallback) throws IOException
+	{
+		m_fallback = fallback;
+		
+		try(RandomAccessFile raf = new RandomAccessFile(pack, "r");
+			FileChannel channel = raf.getChannel())
+		{
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Asset pack is too large to be memory mapped: " + pack);
+			
+			m_pack = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		ByteBuffer indexBuffer = m_pack.duplicate();
+		DataInputStream index = new DataInputStream(new ByteBufferInputStream(indexBuffer));
+		
+		if(index.readInt() != AssetPack.MAGIC)
+			throw new IOException("File is not an asset pack: " + pack);
+		
+		int version = index.readInt();
+		
+		if(version != AssetPack.VERSION)
+			throw new IOException("Unsupported asset pack version " + version + ": " + pack);
+		
+		int count = index.readInt();
+		
+		if(count < 0)
+			throw new IOException("Asset pack has a negative entry count: " + pack);
+		
+		m_paths = new String[count];
+		m_offsets = new int[count];
+		m_lengths = new int[count];
+		
+		long[] offsets = new long[count];
+		long[] lengths = new long[count];
+		
+		for(int i = 0; i < count; i++)
+		{
+			m_paths[i] = index.readUTF();
+			offsets[i] = index.readLong();
+			lengths[i] = index.readLong();
+		}
+		
+		//The index stream is a view over indexBuffer, so its position now marks the data region.
+		int dataOffset = m_pack.capacity() - index.available();
+		long dataSize = m_pack.capacity() - dataOffset;
+		
+		for(int i = 0; i < count; i++)
+		{
+			//Checked in long arithmetic before narrowing, arranged so that the comparison itself cannot overflow.
+			if(offsets[i] < 0 || lengths[i] < 0 || lengths[i] > dataSize || offsets[i] > dataSize - lengths[i])
+				throw new IOException("Asset pack entry " + m_paths[i] + " lies outside of the pack: " + pack);
+			
+			m_offsets[i] = (int)(dataOffset + offsets[i]);
+			m_lengths[i] = (int)lengths[i];
+		}
+	}
+	
+	/**
+	 * @return Whether the pack contains an entry for the specified URI.
+	 */
+	public boolean contains(URI path)
+	{
+		return path.getPath() != null && Arrays.binarySearch(m_paths, AssetPack.normalizePath(path.getPath())) >= 0;
+	}
+	
+	@Override
+	public InputStream create(URI path) throws AssetStreamConstructionException
+	{
+		int entry = path.getPath() == null ? -1 : Arrays.binarySearch(m_paths, AssetPack.normalizePath(path.getPath()));
+		
+		if(entry < 0)
+		{
+			if(m_fallback == null)
+				throw new AssetStreamConstructionException(path, new UnresolvedPackEntryException());
+			
+			return m_fallback.create(path);
+		}
+		
+		ByteBuffer contents = m_pack.duplicate();
+		contents.position(m_offsets[entry]);
+		contents.limit(m_offsets[entry] + m_lengths[entry]);
+		
+		return new ByteBufferInputStream(contents.slice());
+	}
+	
+	public int getEntryCount()
+	{
+		return m_paths.length;
+	}
+	
+	public static final class UnresolvedPackEntryException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+
+		private UnresolvedPackEntryException() { }
+	}
+}
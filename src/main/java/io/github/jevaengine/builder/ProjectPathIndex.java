@@ -0,0 +1,448 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.AssetSourceWatcher.IAssetSourceObserver;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of every file and directory under a project root, used to complete
+ * paths as they are typed. The project is walked once on a background thread
+ * and the index is then kept current by watching the project for changes.
+ * 
+ * Paths are held in a trie whose nodes store their children in sorted arrays,
+ * which keeps the index compact and lets completions be found without
+ * touching the file system. Each node also summarizes the characters and the
+ * types of entries beneath it, so that searches skip subtrees that can not
+ * contain a match.
+ *
+ * @author Jeremy
+ */
+public final class ProjectPathIndex implements IDisposable
+{
+	private final Logger m_logger = LoggerFactory.getLogger(ProjectPathIndex.class);
+	
+	private final File m_root;
+	private final Node m_trie = new Node();
+	private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+	
+	private volatile boolean m_isReady = false;
+	private volatile boolean m_isDisposed = false;
+	private volatile AssetSourceWatcher m_watcher;
+	
+	public ProjectPathIndex(File root)
+	{
+		m_root = root;
+		
+		Thread indexer = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				index();
+			}
+		}, "Project Path Indexer - " + root);
+		
+		indexer.setDaemon(true);
+		indexer.start();
+	}
+	
+	@Override
+	public synchronized void dispose()
+	{
+		m_isDisposed = true;
+		
+		if(m_watcher != null)
+			m_watcher.dispose();
+	}
+	
+	/**
+	 * @return Whether the initial walk of the project has completed.
+	 */
+	public boolean isReady()
+	{
+		return m_isReady;
+	}
+	
+	private void index()
+	{
+		//Watch before walking so that no change made during the walk is missed.
+		try
+		{
+			AssetSourceWatcher watcher = new AssetSourceWatcher(m_root, new IndexUpdater());
+			
+			synchronized(this)
+			{
+				if(m_isDisposed)
+					watcher.dispose();
+				else
+					m_watcher = watcher;
+			}
+		} catch (IOException e)
+		{
+			m_logger.warn("Unable to watch project " + m_root + ", the path index will not reflect later changes.", e);
+		}
+		
+		walk(m_root, "");
+		m_isReady = true;
+	}
+	
+	private void walk(File directory, String prefix)
+	{
+		File[] children = directory.listFiles();
+		
+		if(children == null || m_isDisposed)
+			return;
+		
+		for(File child : children)
+		{
+			String path = prefix + child.getName();
+			boolean isDirectory = child.isDirectory();
+			
+			add(path, isDirectory);
+			
+			if(isDirectory)
+				walk(child, path + "/");
+		}
+	}
+	
+	private void add(String path, boolean isDirectory)
+	{
+		m_lock.writeLock().lock();
+		
+		try
+		{
+			Node[] nodes = new Node[path.length() + 1];
+			nodes[0] = m_trie;
+			
+			for(int i = 0; i < path.length(); i++)
+				nodes[i + 1] = nodes[i].getOrAddChild(path.charAt(i));
+			
+			byte type = isDirectory ? Node.DIRECTORY : Node.FILE;
+			nodes[path.length()].m_type = type;
+			
+			long characters = 0;
+			
+			for(int i = path.length(); i >= 0; i--)
+			{
+				nodes[i].m_charactersBelow |= characters;
+				nodes[i].m_typesBelow |= type;
+				
+				if(i > 0)
+					characters |= Node.characterBit(path.charAt(i - 1));
+			}
+		} finally
+		{
+			m_lock.writeLock().unlock();
+		}
+	}
+	
+	private void remove(String path)
+	{
+		m_lock.writeLock().lock();
+		
+		try
+		{
+			Node[] nodes = new Node[path.length() + 1];
+			nodes[0] = m_trie;
+			
+			for(int i = 0; i < path.length(); i++)
+			{
+				nodes[i + 1] = nodes[i].getChild(path.charAt(i));
+				
+				if(nodes[i + 1] == null)
+					return;
+			}
+			
+			Node node = nodes[path.length()];
+			node.m_type = Node.NONE;
+			
+			//Anything beneath a removed directory has been removed with it.
+			node.removeChild('/');
+			
+			//Drop nodes left without entries, and refresh the summaries of those that remain.
+			for(int i = path.length(); i >= 0; i--)
+			{
+				if(i > 0 && nodes[i].m_type == Node.NONE && nodes[i].m_childCount == 0)
+					nodes[i - 1].removeChild(path.charAt(i - 1));
+				else
+					nodes[i].summarize();
+			}
+		} finally
+		{
+			m_lock.writeLock().unlock();
+		}
+	}
+	
+	private static String normalizeQuery(String query)
+	{
+		String normalized = query.replace('\\', '/');
+		
+		while(normalized.startsWith("/"))
+			normalized = normalized.substring(1);
+		
+		return normalized;
+	}
+	
+	/**
+	 * Finds indexed paths beginning with the specified prefix.
+	 * 
+	 * @param prefix A path relative to the project root. A leading separator is ignored.
+	 * @param directories Whether to find directories, rather than files.
+	 * @param maxResults The maximum number of paths to return.
+	 * @return Matching paths, relative to the project root, in lexicographic order.
+	 */
+	public List<String> complete(String prefix, boolean directories, int maxResults)
+	{
+		String normalized = normalizeQuery(prefix);
+		List<String> results = new ArrayList<>();
+		
+		m_lock.readLock().lock();
+		
+		try
+		{
+			Node node = m_trie;
+			
+			for(int i = 0; i < normalized.length() && node != null; i++)
+				node = node.getChild(normalized.charAt(i));
+			
+			if(node != null)
+				collect(node, new StringBuilder(normalized), directories ? Node.DIRECTORY : Node.FILE, results, maxResults);
+		} finally
+		{
+			m_lock.readLock().unlock();
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Finds indexed paths containing every character of the specified pattern, in order.
+	 * 
+	 * @see #complete(String, boolean, int)
+	 */
+	public List<String> fuzzyComplete(String pattern, boolean directories, int maxResults)
+	{
+		String normalized = normalizeQuery(pattern);
+		List<String> results = new ArrayList<>();
+		
+		m_lock.readLock().lock();
+		
+		//The characters of the pattern that remain to be matched, from each position onwards.
+		long[] remaining = new long[normalized.length() + 1];
+		
+		for(int i = normalized.length() - 1; i >= 0; i--)
+			remaining[i] = remaining[i + 1] | Node.characterBit(normalized.charAt(i));
+		
+		try
+		{
+			fuzzyCollect(m_trie, new StringBuilder(), normalized, remaining, 0, directories ? Node.DIRECTORY : Node.FILE, results, maxResults);
+		} finally
+		{
+			m_lock.readLock().unlock();
+		}
+		
+		return results;
+	}
+	
+	private static void collect(Node node, StringBuilder path, byte type, List<String> results, int maxResults)
+	{
+		if((node.m_typesBelow & type) == 0)
+			return;
+		
+		if(node.m_type == type)
+			results.add(path.toString());
+		
+		for(int i = 0; i < node.m_childCount && results.size() < maxResults; i++)
+		{
+			path.append(node.m_keys[i]);
+			collect(node.m_children[i], path, type, results, maxResults);
+			path.setLength(path.length() - 1);
+		}
+	}
+	
+	private static void fuzzyCollect(Node node, StringBuilder path, String pattern, long[] remaining, int matched, byte type, List<String> results, int maxResults)
+	{
+		if((node.m_typesBelow & type) == 0 || (remaining[matched] & ~node.m_charactersBelow) != 0)
+			return;
+		
+		if(matched == pattern.length())
+		{
+			collect(node, path, type, results, maxResults);
+			return;
+		}
+		
+		char next = Character.toLowerCase(pattern.charAt(matched));
+		
+		for(int i = 0; i < node.m_childCount && results.size() < maxResults; i++)
+		{
+			char key = node.m_keys[i];
+			
+			path.append(key);
+			fuzzyCollect(node.m_children[i], path, pattern, remaining, Character.toLowerCase(key) == next ? matched + 1 : matched, type, results, maxResults);
+			path.setLength(path.length() - 1);
+		}
+	}
+	
+	private static final class Node
+	{
+		private static final byte NONE = 0;
+		private static final byte FILE = 1;
+		private static final byte DIRECTORY = 2;
+		
+		private static final char[] NO_KEYS = new char[0];
+		private static final Node[] NO_CHILDREN = new Node[0];
+		
+		private byte m_type = NONE;
+		
+		private char[] m_keys = NO_KEYS;
+		private Node[] m_children = NO_CHILDREN;
+		private int m_childCount = 0;
+		
+		//A bit for each character, ignoring case, in the keys beneath this node; bits are shared between characters.
+		private long m_charactersBelow = 0;
+		
+		//The types of this node and of every node beneath it.
+		private byte m_typesBelow = NONE;
+		
+		public static long characterBit(char c)
+		{
+			return 1L << (Character.toLowerCase(c) & 63);
+		}
+		
+		public Node getChild(char key)
+		{
+			int index = Arrays.binarySearch(m_keys, 0, m_childCount, key);
+			
+			return index < 0 ? null : m_children[index];
+		}
+		
+		public Node getOrAddChild(char key)
+		{
+			int index = Arrays.binarySearch(m_keys, 0, m_childCount, key);
+			
+			if(index >= 0)
+				return m_children[index];
+			
+			index = -index - 1;
+			
+			if(m_childCount == m_keys.length)
+			{
+				int capacity = Math.max(2, m_childCount * 2);
+				m_keys = Arrays.copyOf(m_keys, capacity);
+				m_children = Arrays.copyOf(m_children, capacity);
+			}
+			
+			System.arraycopy(m_keys, index, m_keys, index + 1, m_childCount - index);
+			System.arraycopy(m_children, index, m_children, index + 1, m_childCount - index);
+			
+			Node child = new Node();
+			m_keys[index] = key;
+			m_children[index] = child;
+			m_childCount++;
+			
+			return child;
+		}
+		
+		public void removeChild(char key)
+		{
+			int index = Arrays.binarySearch(m_keys, 0, m_childCount, key);
+			
+			if(index < 0)
+				return;
+			
+			System.arraycopy(m_keys, index + 1, m_keys, index, m_childCount - index - 1);
+			System.arraycopy(m_children, index + 1, m_children, index, m_childCount - index - 1);
+			
+			m_childCount--;
+			m_children[m_childCount] = null;
+		}
+		
+		/**
+		 * Recomputes the summary of the entries beneath this node from its children.
+		 */
+		public void summarize()
+		{
+			long characters = 0;
+			byte types = m_type;
+			
+			for(int i = 0; i < m_childCount; i++)
+			{
+				characters |= characterBit(m_keys[i]) | m_children[i].m_charactersBelow;
+				types |= m_children[i].m_typesBelow;
+			}
+			
+			m_charactersBelow = characters;
+			m_typesBelow = types;
+		}
+		
+		public void clear()
+		{
+			m_type = NONE;
+			m_keys = NO_KEYS;
+			m_children = NO_CHILDREN;
+			m_childCount = 0;
+			m_charactersBelow = 0;
+			m_typesBelow = NONE;
+		}
+	}
+	
+	private final class IndexUpdater implements IAssetSourceObserver
+	{
+		@Override
+		public void changed(String relativePath)
+		{
+			File file = new File(m_root, relativePath);
+			
+			if(!file.exists())
+				remove(relativePath);
+			else
+			{
+				add(relativePath, file.isDirectory());
+				
+				if(file.isDirectory())
+					walk(file, relativePath + "/");
+			}
+		}
+
+		@Override
+		public void overflow()
+		{
+			m_lock.writeLock().lock();
+			
+			try
+			{
+				m_trie.clear();
+			} finally
+			{
+				m_lock.writeLock().unlock();
+			}
+			
+			walk(m_root, "");
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A least-recently-used cache of raw resource contents, bounded by the total
+ * number of bytes it holds rather than by its number of entries.
+ *
+ * @author Jeremy
+ */
+public final class ResourceCache
+{
+	private final long m_capacity;
+	
+	private final LinkedHashMap<String, byte[]> m_entries = new LinkedHashMap<>(16, 0.75F, true);
+	private long m_size = 0;
+	
+	private final AtomicLong m_hits = new AtomicLong();
+	private final AtomicLong m_misses = new AtomicLong();
+	
+	/**
+	 * @param capacity The maximum number of bytes retained by this cache.
+	 */
+	public ResourceCache(long capacity)
+	{
+		m_capacity = capacity;
+	}
+	
+	/**
+	 * @return The cached contents of the resource, or null if they are not cached.
+	 */
+	public byte[] get(String name)
+	{
+		byte[] contents;
+		
+		synchronized(this)
+		{
+			contents = m_entries.get(name);
+		}
+		
+		if(contents == null)
+			m_misses.incrementAndGet();
+		else
+			m_hits.incrementAndGet();
+		
+		return contents;
+	}
+	
+	/**
+	 * Stores the contents of a resource, evicting the least recently used entries
+	 * as required. Resources larger than the capacity of the cache are not retained.
+	 */
+	public synchronized void put(String name, byte[] contents)
+	{
+		if(contents.length > m_capacity)
+			return;
+		
+		byte[] replaced = m_entries.put(name, contents);
+		
+		if(replaced != null)
+			m_size -= replaced.length;
+		
+		m_size += contents.length;
+		
+		for(Iterator<byte[]> it = m_entries.values().iterator(); m_size > m_capacity && it.hasNext();)
+		{
+			m_size -= it.next().length;
+			it.remove();
+		}
+	}
+	
+	public synchronized void clear()
+	{
+		m_entries.clear();
+		m_size = 0;
+	}
+	
+	public long getCapacity()
+	{
+		return m_capacity;
+	}
+	
+	public synchronized long getSize()
+	{
+		return m_size;
+	}
+	
+	public long getHitCount()
+	{
+		return m_hits.get();
+	}
+	
+	public long getMissCount()
+	{
+		return m_misses.get();
+	}
+	
+	static byte[] readFully(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream contents = new ByteArrayOutputStream(Math.max(is.available(), 4096));
+		byte[] buffer = new byte[8192];
+		
+		for(int read; (read = is.read(buffer)) != -1;)
+			contents.write(buffer, 0, read);
+		
+		return contents.toByteArray();
+	}
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.atlas;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Arranges rectangles in rows ("shelves") of an area with a fixed width.
+ * Rectangles are placed tallest first, which keeps the space wasted above
+ * shorter rectangles in a shelf small for the handful of textures a skin uses.
+ *
+ * @author Jeremy
+ */
+final class ShelfPacker
+{
+	private final int m_padding;
+	
+	public ShelfPacker(int padding)
+	{
+		m_padding = padding;
+	}
+	
+	/**
+	 * @param sizes The rectangles to arrange.
+	 * @param locations Receives the location assigned to each rectangle, by index.
+	 * @return The size of the area required to contain every rectangle.
+	 */
+	public Dimension pack(final List<Dimension> sizes, Point[] locations)
+	{
+		List<Integer> order = new ArrayList<>();
+		long area = 0;
+		int widest = 0;
+		
+		for(int i = 0; i < sizes.size(); i++)
+		{
+			order.add(i);
+			area += (long)(sizes.get(i).width + m_padding) * (sizes.get(i).height + m_padding);
+			widest = Math.max(widest, sizes.get(i).width + m_padding);
+		}
+		
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b)
+			{
+				return Integer.compare(sizes.get(b).height, sizes.get(a).height);
+			}
+		});
+		
+		int width = Math.max(widest, nextPowerOfTwo((int)Math.ceil(Math.sqrt(area))));
+		
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		int usedWidth = 0;
+		
+		for(int i : order)
+		{
+			Dimension size = sizes.get(i);
+			
+			if(x + size.width + m_padding > width)
+			{
+				y += shelfHeight;
+				x = 0;
+				shelfHeight = 0;
+			}
+			
+			locations[i] = new Point(x, y);
+			
+			x += size.width + m_padding;
+			usedWidth = Math.max(usedWidth, x);
+			shelfHeight = Math.max(shelfHeight, size.height + m_padding);
+		}
+		
+		return new Dimension(usedWidth, y + shelfHeight);
+	}
+	
+	private static int nextPowerOfTwo(int value)
+	{
+		int power = 1;
+		
+		while(power < value)
+			power <<= 1;
+		
+		return power;
+	}
+}
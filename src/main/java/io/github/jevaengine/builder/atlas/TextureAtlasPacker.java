@@ -0,0 +1,328 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.atlas;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import io.github.jevaengine.builder.DecodedTextureCache;
+import io.github.jevaengine.builder.config.BinaryDocument;
+import io.github.jevaengine.builder.config.JsonDocumentWriter;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Merges every texture used by the sprites (.jsf) and fonts (.juif) a style
+ * (.juis) references into a single atlas. The sprites and fonts are rewritten
+ * such that their texture is the atlas and their regions address their former
+ * texture's location within it. The style, rewritten sprites and fonts and the
+ * atlas are written under an output directory, using the paths of their URIs,
+ * so that the packed skin can be loaded in place of the original. Sprites and
+ * fonts that are used alongside the style without being referenced by it, such
+ * as the cursor, can be included in the atlas explicitly.
+ *
+ * @author Jeremy
+ */
+public final class TextureAtlasPacker
+{
+	private static final int PADDING = 1;
+	private static final String ATLAS_SUFFIX = ".atlas.png";
+	
+	private final IAssetStreamFactory m_assetFactory;
+	private final DecodedTextureCache m_textureCache;
+	
+	public TextureAtlasPacker(IAssetStreamFactory assetFactory)
+	{
+		this(assetFactory, null);
+	}
+	
+	/**
+	 * @param textureCache The cache textures are decoded through, or null to always decode them.
+	 */
+	public TextureAtlasPacker(IAssetStreamFactory assetFactory, DecodedTextureCache textureCache)
+	{
+		m_assetFactory = assetFactory;
+		m_textureCache = textureCache;
+	}
+	
+	public static void main(String[] args) throws IOException, AssetStreamConstructionException
+	{
+		if(args.length < 3)
+		{
+			System.err.println("Usage: TextureAtlasPacker <asset root> <style URI> <output directory> [additional sprite or font URI...]");
+			System.exit(1);
+		}
+		
+		BuilderAssetStreamFactory assetFactory = new BuilderAssetStreamFactory(new File(args[0]).toURI(), false, BuilderAssetStreamFactory.DEFAULT_RESOURCE_CACHE_SIZE, false);
+		
+		try
+		{
+			List<URI> additional = new ArrayList<>();
+			
+			for(int i = 3; i < args.length; i++)
+				additional.add(URI.create(args[i]));
+			
+			int packed = new TextureAtlasPacker(assetFactory).pack(URI.create(args[1]), additional, new File(args[2]));
+			System.out.println("Packed " + packed + " textures into a single atlas.");
+		} finally
+		{
+			assetFactory.dispose();
+		}
+	}
+	
+	private Object loadDocument(URI name) throws IOException, AssetStreamConstructionException
+	{
+		try(InputStream is = m_assetFactory.create(name))
+		{
+			return BinaryDocument.load(is);
+		}
+	}
+	
+	private BufferedImage loadImage(URI name) throws IOException, AssetStreamConstructionException
+	{
+		if(m_textureCache != null)
+			return m_textureCache.load(name);
+		
+		try(InputStream is = m_assetFactory.create(name))
+		{
+			BufferedImage image = ImageIO.read(is);
+			
+			if(image == null)
+				throw new IOException("Texture is not in a supported image format: " + name);
+			
+			return image;
+		}
+	}
+	
+	private void collectReferences(URI base, Object value, Map<URI, Object> documents) throws IOException, AssetStreamConstructionException
+	{
+		if(value instanceof Map)
+		{
+			for(Object member : ((Map<?, ?>)value).values())
+				collectReferences(base, member, documents);
+		} else if(value instanceof List)
+		{
+			for(Object element : (List<?>)value)
+				collectReferences(base, element, documents);
+		} else if(value instanceof String)
+		{
+			String reference = (String)value;
+			
+			if(reference.endsWith(".jsf") || reference.endsWith(".juif"))
+			{
+				URI name = base.resolve(reference);
+				
+				if(!documents.containsKey(name))
+					documents.put(name, loadDocument(name));
+			}
+		}
+	}
+	
+	/**
+	 * @return The number of textures merged into the atlas.
+	 */
+	public int pack(URI style, File outputRoot) throws IOException, AssetStreamConstructionException
+	{
+		return pack(style, new ArrayList<URI>(), outputRoot);
+	}
+	
+	/**
+	 * @param additional Sprites and fonts to include in the atlas that the style does not reference.
+	 * @return The number of textures merged into the atlas.
+	 */
+	public int pack(URI style, List<URI> additional, File outputRoot) throws IOException, AssetStreamConstructionException
+	{
+		Object styleDocument = loadDocument(style);
+		
+		Map<URI, Object> documents = new LinkedHashMap<>();
+		collectReferences(style, styleDocument, documents);
+		
+		for(URI name : additional)
+		{
+			if(!documents.containsKey(name))
+				documents.put(name, loadDocument(name));
+		}
+		
+		Map<URI, Integer> textureIndices = new LinkedHashMap<>();
+		List<BufferedImage> textures = new ArrayList<>();
+		List<Dimension> sizes = new ArrayList<>();
+		
+		for(Map.Entry<URI, Object> document : documents.entrySet())
+		{
+			URI texture = getTexture(document.getKey(), document.getValue());
+			
+			if(texture != null && !textureIndices.containsKey(texture))
+			{
+				BufferedImage image = loadImage(texture);
+				textureIndices.put(texture, textures.size());
+				textures.add(image);
+				sizes.add(new Dimension(image.getWidth(), image.getHeight()));
+			}
+		}
+		
+		Point[] locations = new Point[textures.size()];
+		Dimension atlasSize = new ShelfPacker(PADDING).pack(sizes, locations);
+		
+		BufferedImage atlas = new BufferedImage(Math.max(1, atlasSize.width), Math.max(1, atlasSize.height), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = atlas.createGraphics();
+		
+		try
+		{
+			for(int i = 0; i < textures.size(); i++)
+				g.drawImage(textures.get(i), locations[i].x, locations[i].y, null);
+		} finally
+		{
+			g.dispose();
+		}
+		
+		String styleName = style.getPath().substring(style.getPath().lastIndexOf('/') + 1);
+		URI atlasName = style.resolve(styleName.replaceFirst("\\.[^.]*$", "") + ATLAS_SUFFIX);
+		
+		File atlasFile = getOutputFile(outputRoot, atlasName);
+		atlasFile.getParentFile().mkdirs();
+		
+		if(!ImageIO.write(atlas, "png", atlasFile))
+			throw new IOException("No image writer is available for PNG textures.");
+		
+		for(Map.Entry<URI, Object> document : documents.entrySet())
+		{
+			URI texture = getTexture(document.getKey(), document.getValue());
+			
+			if(texture != null)
+			{
+				Point offset = locations[textureIndices.get(texture)];
+				offsetRegions(document.getValue(), offset.x, offset.y);
+				
+				@SuppressWarnings("unchecked")
+				Map<String, Object> root = (Map<String, Object>)document.getValue();
+				root.put("texture", relativize(document.getKey(), atlasName));
+			}
+			
+			writeDocument(getOutputFile(outputRoot, document.getKey()), document.getValue());
+		}
+		
+		writeDocument(getOutputFile(outputRoot, style), styleDocument);
+		
+		return textures.size();
+	}
+	
+	private static URI getTexture(URI documentName, Object document)
+	{
+		if(!(document instanceof Map))
+			return null;
+		
+		Object texture = ((Map<?, ?>)document).get("texture");
+		
+		return texture instanceof String ? documentName.resolve((String)texture) : null;
+	}
+	
+	private static void offsetRegions(Object value, int offsetX, int offsetY)
+	{
+		if(value instanceof Map)
+		{
+			@SuppressWarnings("unchecked")
+			Map<String, Object> object = (Map<String, Object>)value;
+			Object region = object.get("region");
+			
+			if(region instanceof Map)
+			{
+				@SuppressWarnings("unchecked")
+				Map<String, Object> bounds = (Map<String, Object>)region;
+				
+				if(bounds.get("x") instanceof Number && bounds.get("y") instanceof Number)
+				{
+					bounds.put("x", ((Number)bounds.get("x")).longValue() + offsetX);
+					bounds.put("y", ((Number)bounds.get("y")).longValue() + offsetY);
+				}
+			}
+			
+			for(Object member : object.values())
+			{
+				if(member != region)
+					offsetRegions(member, offsetX, offsetY);
+			}
+		} else if(value instanceof List)
+		{
+			for(Object element : (List<?>)value)
+				offsetRegions(element, offsetX, offsetY);
+		}
+	}
+	
+	private static File getOutputFile(File outputRoot, URI name)
+	{
+		String path = name.getPath();
+		
+		return new File(outputRoot, path.startsWith("/") ? path.substring(1) : path);
+	}
+	
+	private static void writeDocument(File file, Object document) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		
+		try(OutputStream os = new BufferedOutputStream(new FileOutputStream(file)))
+		{
+			JsonDocumentWriter.write(document, os);
+		}
+	}
+	
+	/**
+	 * Produces a reference to target that is relative to the document named from.
+	 */
+	private static String relativize(URI from, URI target)
+	{
+		String[] fromSegments = from.getPath().split("/");
+		String[] targetSegments = target.getPath().split("/");
+		
+		int common = 0;
+		
+		//The final segment of from names the document rather than a directory.
+		while(common < fromSegments.length - 1 && common < targetSegments.length - 1 &&
+				fromSegments[common].equals(targetSegments[common]))
+			common++;
+		
+		StringBuilder relative = new StringBuilder();
+		
+		for(int i = common; i < fromSegments.length - 1; i++)
+			relative.append("../");
+		
+		for(int i = common; i < targetSegments.length; i++)
+		{
+			relative.append(targetSegments[i]);
+			
+			if(i < targetSegments.length - 1)
+				relative.append('/');
+		}
+		
+		return relative.toString();
+	}
+}
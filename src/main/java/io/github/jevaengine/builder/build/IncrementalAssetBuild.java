@@ -0,0 +1,533 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.build;
+
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import io.github.jevaengine.builder.config.BinaryDocument;
+import io.github.jevaengine.builder.config.BinaryDocumentConverter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds the assets under a project root into an output directory,
+ * incrementally. Window layouts (.jwl) reference styles (.juis), which
+ * reference sprites (.jsf) and fonts (.juif), which reference textures and
+ * sounds; the graph of these references is recorded, along with a content
+ * hash of every asset, in a manifest under the output directory. Building into
+ * a new or emptied output directory is therefore always a full build.
+ * 
+ * On each build, assets whose size and modification time match the manifest
+ * are assumed unchanged without being read. Others are hashed, and only those
+ * whose contents changed, together with every asset that references them
+ * directly or transitively, are processed again. Processing happens in
+ * dependency order, so an asset is always processed after what it references.
+ * 
+ * Compressed assets are referenced by their uncompressed path, as the engine
+ * resolves them, and are copied into the output as they are.
+ * 
+ * Since outputs are not inspected, outputs that are deleted or modified
+ * outside of the build are only restored by a full build.
+ *
+ * @author Jeremy
+ */
+public final class IncrementalAssetBuild
+{
+	public static final String MANIFEST_DIRECTORY = ".builder";
+	public static final String MANIFEST_NAME = "build.manifest";
+	
+	private static final int MANIFEST_VERSION = 1;
+	
+	private static final Set<String> DOCUMENT_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("jwl", "juis", "jsf", "juif")));
+	private static final String[] REFERENCE_EXTENSIONS = {".jwl", ".juis", ".jsf", ".juif", ".png", ".wav"};
+	
+	private final File m_sourceRoot;
+	private final File m_outputRoot;
+	private final File m_manifest;
+	private final List<IAssetProcessor> m_processors;
+	
+	public IncrementalAssetBuild(File sourceRoot, File outputRoot)
+	{
+		this(sourceRoot, outputRoot, Collections.<IAssetProcessor>emptyList());
+	}
+	
+	/**
+	 * @param processors The processors assets are offered to, in order. Assets that no processor accepts are copied,
+	 *                   which, without any processors, leaves an output the engine loads just as it does the project.
+	 */
+	public IncrementalAssetBuild(File sourceRoot, File outputRoot, List<IAssetProcessor> processors)
+	{
+		m_sourceRoot = sourceRoot;
+		m_outputRoot = outputRoot;
+		m_manifest = new File(new File(outputRoot, MANIFEST_DIRECTORY), MANIFEST_NAME);
+		m_processors = new ArrayList<>(processors);
+	}
+	
+	public static void main(String[] args) throws IOException
+	{
+		List<String> options = args.length < 2 ? Collections.<String>emptyList() : Arrays.asList(args).subList(2, args.length);
+		boolean isFull = options.contains("--full");
+		boolean isBinary = options.contains("--binary");
+		
+		if(args.length < 2 || options.size() != (isFull ? 1 : 0) + (isBinary ? 1 : 0))
+		{
+			System.err.println("Usage: IncrementalAssetBuild <project root> <output directory> [--full] [--binary]");
+			System.exit(1);
+		}
+		
+		List<IAssetProcessor> processors = isBinary ? Collections.<IAssetProcessor>singletonList(new BinaryDocumentProcessor()) : Collections.<IAssetProcessor>emptyList();
+		
+		long start = System.nanoTime();
+		BuildSummary summary = new IncrementalAssetBuild(new File(args[0]), new File(args[1]), processors).build(isFull);
+		
+		System.out.println(String.format("Processed %d, removed %d and skipped %d unchanged assets in %d ms.",
+								summary.getProcessed(), summary.getRemoved(), summary.getUnchanged(), (System.nanoTime() - start) / 1000000));
+	}
+	
+	/**
+	 * @param full Whether every asset should be processed, regardless of the manifest.
+	 */
+	public BuildSummary build(boolean full) throws IOException
+	{
+		Map<String, AssetNode> previous = full ? new HashMap<String, AssetNode>() : readManifest();
+		Map<String, AssetNode> current = new LinkedHashMap<>();
+		Set<String> changed = new HashSet<>();
+		
+		for(Map.Entry<String, BasicFileAttributes> e : scan().entrySet())
+		{
+			String path = e.getKey();
+			long size = e.getValue().size();
+			long modified = e.getValue().lastModifiedTime().toMillis();
+			
+			AssetNode node = previous.get(path);
+			
+			if(node == null || node.m_size != size || node.m_modified != modified)
+			{
+				String hash = hash(new File(m_sourceRoot, path));
+				
+				if(node == null || !node.m_hash.equals(hash))
+				{
+					node = new AssetNode(size, modified, hash, findReferences(path));
+					changed.add(path);
+				} else
+					node = new AssetNode(size, modified, hash, node.m_references);
+			}
+			
+			current.put(path, node);
+		}
+		
+		//Removed assets invalidate whatever referenced them, just as changed assets do.
+		Set<String> removed = new HashSet<>(previous.keySet());
+		removed.removeAll(current.keySet());
+		
+		for(String path : removed)
+			Files.deleteIfExists(new File(m_outputRoot, path).toPath());
+		
+		Set<String> dirty = findDownstream(current, previous, changed, removed);
+		
+		List<String> order = orderByDependency(current, dirty);
+		int processed = 0;
+		
+		try
+		{
+			for(; processed < order.size(); processed++)
+				process(order.get(processed));
+		} finally
+		{
+			//Assets not processed are left out, so they and their dependents are processed on the next build.
+			for(String path : order.subList(processed, order.size()))
+				current.remove(path);
+			
+			writeManifest(current);
+		}
+		
+		return new BuildSummary(dirty.size(), removed.size(), current.size() - dirty.size());
+	}
+	
+	private Map<String, BasicFileAttributes> scan() throws IOException
+	{
+		final Path root = m_sourceRoot.toPath().toAbsolutePath().normalize();
+		final Path outputRoot = m_outputRoot.toPath().toAbsolutePath().normalize();
+		final Map<String, BasicFileAttributes> files = new HashMap<>();
+		
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+			{
+				return dir.equals(outputRoot) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+			{
+				if(attrs.isRegularFile())
+					files.put(root.relativize(file).toString().replace(File.separatorChar, '/'), attrs);
+				
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		
+		return files;
+	}
+	
+	private Set<String> findDownstream(Map<String, AssetNode> current, Map<String, AssetNode> previous, Set<String> changed, Set<String> removed)
+	{
+		//Edges of the previous graph are included, such that assets which no longer reference a changed asset are still rebuilt.
+		Map<String, List<String>> referencedBy = new HashMap<>();
+		
+		for(Map<String, AssetNode> graph : Arrays.asList(previous, current))
+		{
+			for(Map.Entry<String, AssetNode> e : graph.entrySet())
+			{
+				for(String reference : e.getValue().m_references)
+				{
+					List<String> dependents = referencedBy.get(reference);
+					
+					if(dependents == null)
+						referencedBy.put(reference, dependents = new ArrayList<>());
+					
+					dependents.add(e.getKey());
+				}
+			}
+		}
+		
+		Set<String> dirty = new HashSet<>();
+		Deque<String> pending = new ArrayDeque<>(changed);
+		pending.addAll(removed);
+		
+		while(!pending.isEmpty())
+		{
+			String path = pending.pop();
+			
+			if(current.containsKey(path) && !dirty.add(path))
+				continue;
+			
+			List<String> dependents = referencedBy.remove(BuilderAssetStreamFactory.getUncompressedPath(path));
+			
+			if(dependents != null)
+				pending.addAll(dependents);
+		}
+		
+		return dirty;
+	}
+	
+	private List<String> orderByDependency(Map<String, AssetNode> graph, Set<String> dirty)
+	{
+		List<String> order = new ArrayList<>(dirty.size());
+		Set<String> visited = new HashSet<>();
+		
+		for(String path : dirty)
+			visit(path, graph, dirty, visited, order);
+		
+		return order;
+	}
+	
+	private void visit(String path, Map<String, AssetNode> graph, Set<String> dirty, Set<String> visited, List<String> order)
+	{
+		//A reference cycle is broken wherever it is first entered.
+		if(!visited.add(path))
+			return;
+		
+		for(String reference : graph.get(path).m_references)
+		{
+			if(dirty.contains(reference))
+				visit(reference, graph, dirty, visited, order);
+			
+			if(dirty.contains(reference + BuilderAssetStreamFactory.COMPRESSED_EXTENSION))
+				visit(reference + BuilderAssetStreamFactory.COMPRESSED_EXTENSION, graph, dirty, visited, order);
+		}
+		
+		order.add(path);
+	}
+	
+	private void process(String path) throws IOException
+	{
+		File source = new File(m_sourceRoot, path);
+		File target = new File(m_outputRoot, path);
+		
+		target.getParentFile().mkdirs();
+		
+		for(IAssetProcessor processor : m_processors)
+		{
+			if(processor.accepts(path))
+			{
+				processor.process(source, target);
+				return;
+			}
+		}
+		
+		Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	private List<String> findReferences(String path) throws IOException
+	{
+		String uncompressedPath = BuilderAssetStreamFactory.getUncompressedPath(path);
+		int extension = uncompressedPath.lastIndexOf('.');
+		
+		if(extension < 0 || !DOCUMENT_EXTENSIONS.contains(uncompressedPath.substring(extension + 1).toLowerCase()))
+			return Collections.emptyList();
+		
+		Object document;
+		
+		try(InputStream is = new BufferedInputStream(new FileInputStream(new File(m_sourceRoot, path))))
+		{
+			document = BinaryDocument.load(uncompressedPath.equals(path) ? is : new GZIPInputStream(is));
+		} catch (IOException | IllegalArgumentException e)
+		{
+			throw new IOException("Unable to parse " + path, e);
+		}
+		
+		Set<String> references = new HashSet<>();
+		
+		try
+		{
+			collectReferences(new URI(null, null, uncompressedPath, null), document, references);
+		} catch (URISyntaxException e)
+		{
+			throw new IOException(e);
+		}
+		
+		return new ArrayList<>(references);
+	}
+	
+	private static void collectReferences(URI base, Object value, Set<String> references)
+	{
+		if(value instanceof Map)
+		{
+			for(Object member : ((Map<?, ?>)value).values())
+				collectReferences(base, member, references);
+		} else if(value instanceof List)
+		{
+			for(Object element : (List<?>)value)
+				collectReferences(base, element, references);
+		} else if(value instanceof String)
+		{
+			String reference = (String)value;
+			
+			for(String extension : REFERENCE_EXTENSIONS)
+			{
+				if(!BuilderAssetStreamFactory.getUncompressedPath(reference).endsWith(extension))
+					continue;
+				
+				try
+				{
+					URI resolved = base.resolve(new URI(reference));
+					
+					//References into the engine's classpath resources or elsewhere lie outside the project.
+					if(resolved.getScheme() == null && resolved.getPath() != null && !resolved.getPath().startsWith("/"))
+						references.add(BuilderAssetStreamFactory.getUncompressedPath(resolved.normalize().getPath()));
+				} catch (URISyntaxException e)
+				{
+					//Not a reference.
+				}
+				
+				break;
+			}
+		}
+	}
+	
+	private static String hash(File file) throws IOException
+	{
+		try(InputStream is = new FileInputStream(file))
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] buffer = new byte[8192];
+			
+			for(int read; (read = is.read(buffer)) >= 0;)
+				digest.update(buffer, 0, read);
+			
+			StringBuilder hex = new StringBuilder();
+			
+			for(byte b : digest.digest())
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private Map<String, AssetNode> readManifest()
+	{
+		Map<String, AssetNode> nodes = new HashMap<>();
+		
+		if(!m_manifest.isFile())
+			return nodes;
+		
+		try(InputStream is = new BufferedInputStream(new FileInputStream(m_manifest)))
+		{
+			Map<?, ?> manifest = (Map<?, ?>)BinaryDocument.load(is);
+			
+			if(!Long.valueOf(MANIFEST_VERSION).equals(manifest.get("version")))
+				return nodes;
+			
+			for(Map.Entry<?, ?> e : ((Map<?, ?>)manifest.get("assets")).entrySet())
+			{
+				Map<?, ?> asset = (Map<?, ?>)e.getValue();
+				List<String> references = new ArrayList<>();
+				
+				for(Object reference : (List<?>)asset.get("references"))
+					references.add((String)reference);
+				
+				nodes.put((String)e.getKey(), new AssetNode(((Number)asset.get("size")).longValue(),
+															((Number)asset.get("modified")).longValue(),
+															(String)asset.get("hash"), references));
+			}
+		} catch (IOException | RuntimeException e)
+		{
+			//An unreadable manifest only costs a full build.
+			nodes.clear();
+		}
+		
+		return nodes;
+	}
+	
+	private void writeManifest(Map<String, AssetNode> nodes) throws IOException
+	{
+		Map<String, Object> assets = new LinkedHashMap<>();
+		
+		for(Map.Entry<String, AssetNode> e : nodes.entrySet())
+		{
+			Map<String, Object> asset = new LinkedHashMap<>();
+			asset.put("size", e.getValue().m_size);
+			asset.put("modified", e.getValue().m_modified);
+			asset.put("hash", e.getValue().m_hash);
+			asset.put("references", new ArrayList<Object>(e.getValue().m_references));
+			
+			assets.put(e.getKey(), asset);
+		}
+		
+		Map<String, Object> manifest = new LinkedHashMap<>();
+		manifest.put("version", (long)MANIFEST_VERSION);
+		manifest.put("assets", assets);
+		
+		m_manifest.getParentFile().mkdirs();
+		File temp = new File(m_manifest.getPath() + ".tmp");
+		
+		try(OutputStream os = new BufferedOutputStream(new FileOutputStream(temp)))
+		{
+			BinaryDocument.write(manifest, os);
+		}
+		
+		Files.move(temp.toPath(), m_manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	private static final class AssetNode
+	{
+		private final long m_size;
+		private final long m_modified;
+		private final String m_hash;
+		private final List<String> m_references;
+		
+		public AssetNode(long size, long modified, String hash, List<String> references)
+		{
+			m_size = size;
+			m_modified = modified;
+			m_hash = hash;
+			m_references = references;
+		}
+	}
+	
+	public interface IAssetProcessor
+	{
+		/**
+		 * @param path The path of the asset, relative to the project root and using '/' as its separator.
+		 */
+		boolean accepts(String path);
+		
+		void process(File source, File target) throws IOException;
+	}
+	
+	/**
+	 * Converts fonts, sprites and styles into binary documents. The engine only
+	 * loads JSON documents, so this processor is only of use to outputs read
+	 * through {@link BinaryDocument#load(InputStream)}.
+	 */
+	public static final class BinaryDocumentProcessor implements IAssetProcessor
+	{
+		@Override
+		public boolean accepts(String path)
+		{
+			return BinaryDocumentConverter.isConverted(path);
+		}
+		
+		@Override
+		public void process(File source, File target) throws IOException
+		{
+			BinaryDocumentConverter.convert(source, target);
+		}
+	}
+	
+	public static final class BuildSummary
+	{
+		private final int m_processed;
+		private final int m_removed;
+		private final int m_unchanged;
+		
+		private BuildSummary(int processed, int removed, int unchanged)
+		{
+			m_processed = processed;
+			m_removed = removed;
+			m_unchanged = unchanged;
+		}
+		
+		public int getProcessed()
+		{
+			return m_processed;
+		}
+		
+		public int getRemoved()
+		{
+			return m_removed;
+		}
+		
+		public int getUnchanged()
+		{
+			return m_unchanged;
+		}
+	}
+}
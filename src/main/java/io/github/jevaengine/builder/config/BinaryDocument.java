@@ -0,0 +1,308 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.config;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of the document trees produced by
+ * {@link JsonDocumentReader}. The engine only loads JSON documents, so binary
+ * documents are written beside the JSON they encode, for tools that read them
+ * through {@link #load(InputStream)}.
+ * 
+ * A binary document begins with {@link #MAGIC} and a version byte, followed by
+ * a table of every distinct string in the document and then the document
+ * itself. Values are encoded as a tag byte followed by their payload; strings,
+ * including member names, are encoded as an index into the string table and
+ * integral numbers as variable length, zig-zag encoded integers. Entries in the
+ * string table are encoded as their variable length size followed by their
+ * UTF-8 encoding.
+ *
+ * @author Jeremy
+ */
+public final class BinaryDocument
+{
+	public static final byte[] MAGIC = {'J', 'B', 'D', 'C'};
+	public static final int VERSION = 2;
+	
+	private static final int TAG_NULL = 0;
+	private static final int TAG_FALSE = 1;
+	private static final int TAG_TRUE = 2;
+	private static final int TAG_INTEGER = 3;
+	private static final int TAG_REAL = 4;
+	private static final int TAG_STRING = 5;
+	private static final int TAG_ARRAY = 6;
+	private static final int TAG_OBJECT = 7;
+	
+	private BinaryDocument() { }
+	
+	/**
+	 * @return Whether the specified header, the first bytes of a document, identifies a binary document.
+	 */
+	public static boolean isBinary(byte[] header, int length)
+	{
+		if(length < MAGIC.length)
+			return false;
+		
+		for(int i = 0; i < MAGIC.length; i++)
+		{
+			if(header[i] != MAGIC[i])
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Reads a document that is either a binary document or JSON, as determined by its header.
+	 */
+	public static Object load(InputStream is) throws IOException
+	{
+		InputStream source = is.markSupported() ? is : new BufferedInputStream(is);
+		byte[] header = new byte[MAGIC.length];
+		
+		source.mark(header.length);
+		int length = 0;
+		
+		for(int read; length < header.length && (read = source.read(header, length, header.length - length)) != -1;)
+			length += read;
+		
+		source.reset();
+		
+		return isBinary(header, length) ? read(source) : JsonDocumentReader.read(source);
+	}
+	
+	public static Object read(InputStream is) throws IOException
+	{
+		DataInputStream in = new DataInputStream(is);
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		
+		if(!isBinary(magic, magic.length))
+			throw new IOException("Stream does not contain a binary document.");
+		
+		int version = in.readUnsignedByte();
+		
+		if(version != VERSION)
+			throw new IOException("Unsupported binary document version " + version);
+		
+		String[] strings = new String[readLength(in)];
+		
+		for(int i = 0; i < strings.length; i++)
+		{
+			byte[] encoded = new byte[readLength(in)];
+			in.readFully(encoded);
+			strings[i] = new String(encoded, StandardCharsets.UTF_8);
+		}
+		
+		return readValue(in, strings);
+	}
+	
+	private static Object readValue(DataInputStream in, String[] strings) throws IOException
+	{
+		int tag = in.readUnsignedByte();
+		
+		switch(tag)
+		{
+		case TAG_NULL:
+			return null;
+		case TAG_FALSE:
+			return Boolean.FALSE;
+		case TAG_TRUE:
+			return Boolean.TRUE;
+		case TAG_INTEGER:
+			long zigzag = readUnsigned(in);
+			return (zigzag >>> 1) ^ -(zigzag & 1);
+		case TAG_REAL:
+			return in.readDouble();
+		case TAG_STRING:
+			return readString(in, strings);
+		case TAG_ARRAY:
+			int length = readLength(in);
+			List<Object> array = new ArrayList<>(length);
+			
+			for(int i = 0; i < length; i++)
+				array.add(readValue(in, strings));
+			
+			return array;
+		case TAG_OBJECT:
+			int members = readLength(in);
+			Map<String, Object> object = new LinkedHashMap<>(Math.max(4, members * 2));
+			
+			for(int i = 0; i < members; i++)
+			{
+				String name = readString(in, strings);
+				object.put(name, readValue(in, strings));
+			}
+			
+			return object;
+		default:
+			throw new IOException("Invalid binary document value tag " + tag);
+		}
+	}
+	
+	private static String readString(DataInputStream in, String[] strings) throws IOException
+	{
+		long index = readUnsigned(in);
+		
+		if(index >= strings.length)
+			throw new IOException("Invalid binary document string index " + index);
+		
+		return strings[(int)index];
+	}
+	
+	private static int readLength(DataInputStream in) throws IOException
+	{
+		long length = readUnsigned(in);
+		
+		if(length > Integer.MAX_VALUE)
+			throw new IOException("Invalid binary document length " + length);
+		
+		return (int)length;
+	}
+	
+	private static long readUnsigned(DataInputStream in) throws IOException
+	{
+		long value = 0;
+		
+		for(int shift = 0; shift < 64; shift += 7)
+		{
+			int b = in.read();
+			
+			if(b == -1)
+				throw new EOFException();
+			
+			value |= (long)(b & 0x7F) << shift;
+			
+			if((b & 0x80) == 0)
+				return value;
+		}
+		
+		throw new IOException("Malformed variable length integer in binary document");
+	}
+	
+	public static void write(Object document, OutputStream os) throws IOException
+	{
+		Map<String, Integer> stringTable = new LinkedHashMap<>();
+		collectStrings(document, stringTable);
+		
+		DataOutputStream out = new DataOutputStream(os);
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		writeUnsigned(out, stringTable.size());
+		
+		for(String s : stringTable.keySet())
+		{
+			byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+			writeUnsigned(out, encoded.length);
+			out.write(encoded);
+		}
+		
+		writeValue(out, document, stringTable);
+		out.flush();
+	}
+	
+	private static void collectStrings(Object value, Map<String, Integer> stringTable)
+	{
+		if(value instanceof String)
+			addString((String)value, stringTable);
+		else if(value instanceof List)
+		{
+			for(Object element : (List<?>)value)
+				collectStrings(element, stringTable);
+		} else if(value instanceof Map)
+		{
+			for(Map.Entry<?, ?> member : ((Map<?, ?>)value).entrySet())
+			{
+				addString(member.getKey().toString(), stringTable);
+				collectStrings(member.getValue(), stringTable);
+			}
+		}
+	}
+	
+	private static void addString(String s, Map<String, Integer> stringTable)
+	{
+		if(!stringTable.containsKey(s))
+			stringTable.put(s, stringTable.size());
+	}
+	
+	private static void writeValue(DataOutputStream out, Object value, Map<String, Integer> stringTable) throws IOException
+	{
+		if(value == null)
+			out.writeByte(TAG_NULL);
+		else if(value instanceof Boolean)
+			out.writeByte((Boolean)value ? TAG_TRUE : TAG_FALSE);
+		else if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+		{
+			long integer = ((Number)value).longValue();
+			out.writeByte(TAG_INTEGER);
+			writeUnsigned(out, (integer << 1) ^ (integer >> 63));
+		} else if(value instanceof Number)
+		{
+			out.writeByte(TAG_REAL);
+			out.writeDouble(((Number)value).doubleValue());
+		} else if(value instanceof String)
+		{
+			out.writeByte(TAG_STRING);
+			writeUnsigned(out, stringTable.get(value));
+		} else if(value instanceof List)
+		{
+			List<?> array = (List<?>)value;
+			out.writeByte(TAG_ARRAY);
+			writeUnsigned(out, array.size());
+			
+			for(Object element : array)
+				writeValue(out, element, stringTable);
+		} else if(value instanceof Map)
+		{
+			Map<?, ?> object = (Map<?, ?>)value;
+			out.writeByte(TAG_OBJECT);
+			writeUnsigned(out, object.size());
+			
+			for(Map.Entry<?, ?> member : object.entrySet())
+			{
+				writeUnsigned(out, stringTable.get(member.getKey().toString()));
+				writeValue(out, member.getValue(), stringTable);
+			}
+		} else
+			throw new IllegalArgumentException("Unsupported document value type " + value.getClass().getName());
+	}
+	
+	private static void writeUnsigned(DataOutputStream out, long value) throws IOException
+	{
+		while((value & ~0x7FL) != 0)
+		{
+			out.writeByte((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		
+		out.writeByte((int)value);
+	}
+}
@@ -0,0 +1,123 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Converts the JSON fonts (.juif), sprites (.jsf) and styles (.juis) under a
+ * directory into binary documents, written under the same relative paths in a
+ * target directory and named with {@link #BINARY_EXTENSION} appended. The
+ * target may be the source directory itself, since the JSON documents, which
+ * are all the engine loads, are never replaced. Every converted document is
+ * decoded again and compared against the JSON it was produced from, so a
+ * conversion never silently alters an asset.
+ *
+ * @author Jeremy
+ */
+public final class BinaryDocumentConverter
+{
+	public static final Set<String> CONVERTED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("juif", "jsf", "juis")));
+	public static final String BINARY_EXTENSION = ".bin";
+	
+	private BinaryDocumentConverter() { }
+	
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length != 2)
+		{
+			System.err.println("Usage: BinaryDocumentConverter <source directory> <target directory>");
+			System.exit(1);
+		}
+		
+		int converted = convertTree(new File(args[0]), new File(args[1]));
+		System.out.println("Converted " + converted + " documents into binary form.");
+	}
+	
+	public static boolean isConverted(String name)
+	{
+		int extension = name.lastIndexOf('.');
+		
+		return extension >= 0 && CONVERTED_EXTENSIONS.contains(name.substring(extension + 1).toLowerCase());
+	}
+	
+	/**
+	 * @return The number of documents converted.
+	 */
+	public static int convertTree(File source, File target) throws IOException
+	{
+		File[] children = source.listFiles();
+		
+		if(children == null)
+			throw new IOException("Unable to list directory " + source);
+		
+		int converted = 0;
+		
+		for(File child : children)
+		{
+			if(child.isDirectory())
+				converted += convertTree(child, new File(target, child.getName()));
+			else if(isConverted(child.getName()))
+			{
+				target.mkdirs();
+				convert(child, new File(target, child.getName() + BINARY_EXTENSION));
+				converted++;
+			}
+		}
+		
+		return converted;
+	}
+	
+	public static void convert(File source, File target) throws IOException
+	{
+		Object document;
+		
+		try(InputStream is = new BufferedInputStream(new FileInputStream(source)))
+		{
+			document = JsonDocumentReader.read(is);
+		} catch(IOException e)
+		{
+			throw new IOException("Unable to parse " + source, e);
+		}
+		
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		BinaryDocument.write(document, encoded);
+		
+		if(!document.equals(BinaryDocument.read(new ByteArrayInputStream(encoded.toByteArray()))))
+			throw new IOException("Binary encoding of " + source + " does not decode to the original document.");
+		
+		try(OutputStream os = new BufferedOutputStream(new FileOutputStream(target)))
+		{
+			encoded.writeTo(os);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses JSON configuration documents, such as layouts, styles, sprites and
+ * fonts, into a document tree. Objects are parsed into a {@link Map} that
+ * preserves member order, arrays into a {@link List}, integral numbers into a
+ * {@link Long}, all other numbers into a {@link Double}, and the remaining
+ * values into a {@link String}, {@link Boolean} or null.
+ *
+ * @author Jeremy
+ */
+public final class JsonDocumentReader
+{
+	private final Reader m_reader;
+	private final StringBuilder m_token = new StringBuilder();
+	
+	private int m_next;
+	private int m_position = 0;
+	
+	private JsonDocumentReader(Reader reader) throws IOException
+	{
+		m_reader = reader;
+		m_next = reader.read();
+	}
+	
+	public static Object read(InputStream is) throws IOException
+	{
+		return read(new InputStreamReader(is, StandardCharsets.UTF_8));
+	}
+	
+	public static Object read(Reader reader) throws IOException
+	{
+		JsonDocumentReader parser = new JsonDocumentReader(reader);
+		
+		//Skip a byte order mark, which some editors emit.
+		if(parser.m_next == '\uFEFF')
+			parser.advance();
+		
+		Object document = parser.readValue();
+		parser.skipWhitespace();
+		
+		if(parser.m_next != -1)
+			throw parser.error("Unexpected content after document");
+		
+		return document;
+	}
+	
+	private int advance() throws IOException
+	{
+		int current = m_next;
+		m_next = m_reader.read();
+		m_position++;
+		
+		return current;
+	}
+	
+	private IOException error(String message)
+	{
+		return new IOException(message + " at character " + m_position);
+	}
+	
+	private void skipWhitespace() throws IOException
+	{
+		while(m_next == ' ' || m_next == '\t' || m_next == '\n' || m_next == '\r')
+			advance();
+	}
+	
+	private void expect(char c) throws IOException
+	{
+		skipWhitespace();
+		
+		if(advance() != c)
+			throw error("Expected '" + c + "'");
+	}
+	
+	private Object readValue() throws IOException
+	{
+		skipWhitespace();
+		
+		switch(m_next)
+		{
+		case '{':
+			return readObject();
+		case '[':
+			return readArray();
+		case '"':
+			return readString();
+		case 't':
+			readLiteral("true");
+			return Boolean.TRUE;
+		case 'f':
+			readLiteral("false");
+			return Boolean.FALSE;
+		case 'n':
+			readLiteral("null");
+			return null;
+		case -1:
+			throw error("Unexpected end of document");
+		default:
+			return readNumber();
+		}
+	}
+	
+	private void readLiteral(String literal) throws IOException
+	{
+		for(int i = 0; i < literal.length(); i++)
+		{
+			if(advance() != literal.charAt(i))
+				throw error("Expected '" + literal + "'");
+		}
+	}
+	
+	private Map<String, Object> readObject() throws IOException
+	{
+		Map<String, Object> object = new LinkedHashMap<>();
+		expect('{');
+		skipWhitespace();
+		
+		if(m_next == '}')
+		{
+			advance();
+			return object;
+		}
+		
+		do
+		{
+			skipWhitespace();
+			
+			if(m_next != '"')
+				throw error("Expected member name");
+			
+			String name = readString();
+			expect(':');
+			object.put(name, readValue());
+			skipWhitespace();
+		} while(m_next == ',' && advance() == ',');
+		
+		expect('}');
+		
+		return object;
+	}
+	
+	private List<Object> readArray() throws IOException
+	{
+		List<Object> array = new ArrayList<>();
+		expect('[');
+		skipWhitespace();
+		
+		if(m_next == ']')
+		{
+			advance();
+			return array;
+		}
+		
+		do
+		{
+			array.add(readValue());
+			skipWhitespace();
+		} while(m_next == ',' && advance() == ',');
+		
+		expect(']');
+		
+		return array;
+	}
+	
+	private String readString() throws IOException
+	{
+		m_token.setLength(0);
+		advance();
+		
+		while(true)
+		{
+			int c = advance();
+			
+			if(c == -1)
+				throw error("Unterminated string");
+			else if(c == '"')
+				return m_token.toString();
+			else if(c != '\\')
+			{
+				m_token.append((char)c);
+				continue;
+			}
+			
+			int escaped = advance();
+			
+			switch(escaped)
+			{
+			case '"':
+			case '\\':
+			case '/':
+				m_token.append((char)escaped);
+				break;
+			case 'b':
+				m_token.append('\b');
+				break;
+			case 'f':
+				m_token.append('\f');
+				break;
+			case 'n':
+				m_token.append('\n');
+				break;
+			case 'r':
+				m_token.append('\r');
+				break;
+			case 't':
+				m_token.append('\t');
+				break;
+			case 'u':
+				int code = 0;
+				
+				for(int i = 0; i < 4; i++)
+				{
+					int digit = Character.digit(advance(), 16);
+					
+					if(digit < 0)
+						throw error("Invalid unicode escape");
+					
+					code = code * 16 + digit;
+				}
+				
+				m_token.append((char)code);
+				break;
+			default:
+				throw error("Invalid escape sequence");
+			}
+		}
+	}
+	
+	private Object readNumber() throws IOException
+	{
+		m_token.setLength(0);
+		boolean isIntegral = true;
+		
+		while((m_next >= '0' && m_next <= '9') || m_next == '-' || m_next == '+' || m_next == '.' || m_next == 'e' || m_next == 'E')
+		{
+			if(m_next == '.' || m_next == 'e' || m_next == 'E')
+				isIntegral = false;
+			
+			m_token.append((char)advance());
+		}
+		
+		if(m_token.length() == 0)
+			throw error("Unexpected character");
+		
+		try
+		{
+			if(isIntegral)
+				return Long.parseLong(m_token.toString());
+			
+			return Double.parseDouble(m_token.toString());
+		} catch (NumberFormatException e)
+		{
+			throw error("Invalid number '" + m_token + "'");
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a document tree, as produced by {@link JsonDocumentReader}, as
+ * indented JSON.
+ *
+ * @author Jeremy
+ */
+public final class JsonDocumentWriter
+{
+	private static final String INDENT = "  ";
+	
+	private final Writer m_writer;
+	
+	private JsonDocumentWriter(Writer writer)
+	{
+		m_writer = writer;
+	}
+	
+	public static void write(Object document, OutputStream os) throws IOException
+	{
+		Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+		write(document, writer);
+		writer.flush();
+	}
+	
+	public static void write(Object document, Writer writer) throws IOException
+	{
+		new JsonDocumentWriter(writer).writeValue(document, "");
+	}
+	
+	private void writeValue(Object value, String indent) throws IOException
+	{
+		if(value instanceof Map)
+			writeObject((Map<?, ?>)value, indent);
+		else if(value instanceof List)
+			writeArray((List<?>)value, indent);
+		else if(value instanceof String)
+			writeString((String)value);
+		else if(value == null || value instanceof Number || value instanceof Boolean)
+			m_writer.write(String.valueOf(value));
+		else
+			throw new IllegalArgumentException("Unsupported document value type " + value.getClass().getName());
+	}
+	
+	private void writeObject(Map<?, ?> object, String indent) throws IOException
+	{
+		if(object.isEmpty())
+		{
+			m_writer.write("{ }");
+			return;
+		}
+		
+		String memberIndent = indent + INDENT;
+		m_writer.write("{\n");
+		
+		for(Iterator<? extends Map.Entry<?, ?>> it = object.entrySet().iterator(); it.hasNext();)
+		{
+			Map.Entry<?, ?> member = it.next();
+			
+			m_writer.write(memberIndent);
+			writeString(member.getKey().toString());
+			m_writer.write(" : ");
+			writeValue(member.getValue(), memberIndent);
+			m_writer.write(it.hasNext() ? ",\n" : "\n");
+		}
+		
+		m_writer.write(indent);
+		m_writer.write("}");
+	}
+	
+	private void writeArray(List<?> array, String indent) throws IOException
+	{
+		if(array.isEmpty())
+		{
+			m_writer.write("[ ]");
+			return;
+		}
+		
+		String elementIndent = indent + INDENT;
+		m_writer.write("[\n");
+		
+		for(Iterator<?> it = array.iterator(); it.hasNext();)
+		{
+			m_writer.write(elementIndent);
+			writeValue(it.next(), elementIndent);
+			m_writer.write(it.hasNext() ? ",\n" : "\n");
+		}
+		
+		m_writer.write(indent);
+		m_writer.write("]");
+	}
+	
+	private void writeString(String value) throws IOException
+	{
+		m_writer.write('"');
+		
+		for(int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			
+			switch(c)
+			{
+			case '"':
+				m_writer.write("\\\"");
+				break;
+			case '\\':
+				m_writer.write("\\\\");
+				break;
+			case '\n':
+				m_writer.write("\\n");
+				break;
+			case '\r':
+				m_writer.write("\\r");
+				break;
+			case '\t':
+				m_writer.write("\\t");
+				break;
+			default:
+				if(c < 0x20)
+					m_writer.write(String.format("\\u%04x", (int)c));
+				else
+					m_writer.write(c);
+			}
+		}
+		
+		m_writer.write('"');
+	}
+}
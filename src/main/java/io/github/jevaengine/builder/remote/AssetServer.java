@@ -0,0 +1,328 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.remote;
+
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory.UnresolvedResourcePathException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the assets of a {@link BuilderAssetStreamFactory} to other processes
+ * on the same machine, such as a game run alongside the builder, through a
+ * socket bound to the loopback address. File assets are sent straight from
+ * the file system to the socket with {@link FileChannel#transferTo}.
+ * 
+ * Each connection carries a sequence of requests, each being a URI, and the
+ * responses are sent in the order the requests were received, so clients may
+ * send further requests before earlier responses have arrived. A response is
+ * a status byte followed, for a served asset, by its length and contents or,
+ * for a failure, by a message. Only local classpath assets and assets provided
+ * by the asset roots are served; paths that leave the roots are refused.
+ *
+ * @author Jeremy
+ */
+public final class AssetServer implements IDisposable
+{
+	static final byte STATUS_OK = 0;
+	static final byte STATUS_NOT_FOUND = 1;
+	static final byte STATUS_ERROR = 2;
+	
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+	
+	private final Logger m_logger = LoggerFactory.getLogger(AssetServer.class);
+	
+	private final BuilderAssetStreamFactory m_assetFactory;
+	private final ServerSocketChannel m_server;
+	private final Set<SocketChannel> m_connections = Collections.newSetFromMap(new ConcurrentHashMap<SocketChannel, Boolean>());
+	private final AtomicInteger m_connectionCount = new AtomicInteger();
+	
+	/**
+	 * Serves assets on an unused port, which is then given by {@link #getPort()}.
+	 */
+	public AssetServer(BuilderAssetStreamFactory assetFactory) throws IOException
+	{
+		this(assetFactory, 0);
+	}
+	
+	public AssetServer(BuilderAssetStreamFactory assetFactory, int port) throws IOException
+	{
+		m_assetFactory = assetFactory;
+		m_server = ServerSocketChannel.open();
+		
+		try
+		{
+			m_server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		} catch (IOException e)
+		{
+			m_server.close();
+			throw e;
+		}
+		
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				accept();
+			}
+		}, "Asset Server - " + getPort());
+		
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if(args.length != 2)
+		{
+			System.err.println("Usage: AssetServer <asset root> <port>");
+			System.exit(1);
+		}
+		
+		AssetServer server = new AssetServer(new BuilderAssetStreamFactory(new File(args[0]).toURI(), true), Integer.parseInt(args[1]));
+		System.out.println("Serving assets on loopback port " + server.getPort() + ".");
+		
+		Thread.currentThread().join();
+	}
+	
+	public int getPort()
+	{
+		return m_server.socket().getLocalPort();
+	}
+	
+	@Override
+	public void dispose()
+	{
+		try
+		{
+			m_server.close();
+		} catch (IOException e)
+		{
+			m_logger.warn("Unable to close asset server socket", e);
+		}
+		
+		for(SocketChannel c : m_connections)
+			close(c);
+	}
+	
+	private void accept()
+	{
+		try
+		{
+			while(true)
+			{
+				final SocketChannel connection = m_server.accept();
+				connection.socket().setTcpNoDelay(true);
+				m_connections.add(connection);
+				
+				Thread handler = new Thread(new Runnable() {
+					@Override
+					public void run()
+					{
+						serve(connection);
+					}
+				}, "Asset Server Connection - " + m_connectionCount.incrementAndGet());
+				
+				handler.setDaemon(true);
+				handler.start();
+			}
+		} catch (AsynchronousCloseException e)
+		{
+			//Server has been disposed of.
+		} catch (IOException e)
+		{
+			m_logger.error("Asset server stopped accepting connections", e);
+		}
+	}
+	
+	private void serve(SocketChannel connection)
+	{
+		try
+		{
+			DataInputStream requests = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+			
+			while(true)
+			{
+				String request;
+				
+				try
+				{
+					request = requests.readUTF();
+				} catch (EOFException e)
+				{
+					return;
+				}
+				
+				respond(connection, request);
+			}
+		} catch (AsynchronousCloseException e)
+		{
+			//Connection closed by dispose.
+		} catch (IOException e)
+		{
+			m_logger.debug("Asset server connection failed", e);
+		} finally
+		{
+			m_connections.remove(connection);
+			close(connection);
+		}
+	}
+	
+	private void respond(SocketChannel connection, String request) throws IOException
+	{
+		URI name;
+		
+		try
+		{
+			name = new URI(request);
+		} catch (URISyntaxException e)
+		{
+			sendError(connection, "Malformed asset URI: " + request);
+			return;
+		}
+		
+		boolean isLocal = "local".equals(name.getScheme());
+		
+		if(!isLocal && (name.getScheme() != null || name.getPath() == null || new File(name.getPath()).isAbsolute()))
+		{
+			sendError(connection, "Only relative and local assets are served: " + request);
+			return;
+		}
+		
+		name = name.normalize();
+		
+		//Segments that ascend out of the path remain at its start once it has been normalized.
+		if(name.getPath() == null || ("/" + name.getPath() + "/").contains("/../"))
+		{
+			sendError(connection, "Assets outside of the asset roots are not served: " + request);
+			return;
+		}
+		
+		SeekableByteChannel asset;
+		
+		try
+		{
+			asset = m_assetFactory.createRootChannel(name);
+		} catch (AssetStreamConstructionException e)
+		{
+			if(e.getCause() instanceof UnresolvedResourcePathException)
+				write(connection, ByteBuffer.wrap(new byte[] {STATUS_NOT_FOUND}));
+			else
+				sendError(connection, String.valueOf(e.getCause() == null ? e.getMessage() : e.getCause().getMessage()));
+			
+			return;
+		}
+		
+		try
+		{
+			long length = asset.size();
+			
+			ByteBuffer header = ByteBuffer.allocate(9);
+			header.put(STATUS_OK).putLong(length).flip();
+			write(connection, header);
+			
+			if(asset instanceof FileChannel)
+			{
+				FileChannel file = (FileChannel)asset;
+				
+				for(long sent = 0; sent < length;)
+				{
+					long transferred = file.transferTo(sent, length - sent, connection);
+					
+					//Nothing is transferred once the end of the file is reached, so a truncated file would never complete.
+					if(transferred == 0 && sent >= file.size())
+						throw new EOFException("Asset " + name + " was truncated while being sent.");
+					
+					sent += transferred;
+				}
+			} else
+			{
+				ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(length, COPY_BUFFER_SIZE));
+				
+				for(long sent = 0; sent < length;)
+				{
+					buffer.clear();
+					
+					if(asset.read(buffer) < 0)
+						throw new EOFException("Asset " + name + " ended before its reported length.");
+					
+					buffer.flip();
+					sent += buffer.remaining();
+					write(connection, buffer);
+				}
+			}
+		} finally
+		{
+			asset.close();
+		}
+	}
+	
+	private static void sendError(SocketChannel connection, String message) throws IOException
+	{
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(response);
+		
+		out.writeByte(STATUS_ERROR);
+		out.writeUTF(message);
+		out.flush();
+		
+		write(connection, ByteBuffer.wrap(response.toByteArray()));
+	}
+	
+	private static void write(SocketChannel connection, ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+			connection.write(buffer);
+	}
+	
+	private void close(SocketChannel connection)
+	{
+		try
+		{
+			connection.close();
+		} catch (IOException e)
+		{
+			m_logger.debug("Unable to close asset server connection", e);
+		}
+	}
+}
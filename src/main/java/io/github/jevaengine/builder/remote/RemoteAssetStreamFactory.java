@@ -0,0 +1,297 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.remote;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IDisposable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams assets from an {@link AssetServer}. Connections to the server are
+ * pooled and reused across requests, and a batch of assets requested through
+ * {@link #createAll(Collection)} is pipelined over a single connection, such
+ * that loading many small assets is not bound by the round trip of each.
+ *
+ * @author Jeremy
+ */
+public final class RemoteAssetStreamFactory implements IAssetStreamFactory, IDisposable
+{
+	private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 4;
+	private static final int DEFAULT_TIMEOUT_MILLISECONDS = 30 * 1000;
+	private static final int PIPELINE_DEPTH = 16;
+	
+	private final InetSocketAddress m_address;
+	private final int m_maxIdleConnections;
+	private final int m_timeout;
+	
+	private final Queue<Connection> m_idleConnections = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger m_idleConnectionCount = new AtomicInteger();
+	private volatile boolean m_isDisposed = false;
+	
+	/**
+	 * @param port The loopback port the asset server is listening on.
+	 */
+	public RemoteAssetStreamFactory(int port)
+	{
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), DEFAULT_MAX_IDLE_CONNECTIONS);
+	}
+	
+	/**
+	 * @param maxIdleConnections The number of connections kept open for reuse when not in use.
+	 */
+	public RemoteAssetStreamFactory(InetSocketAddress address, int maxIdleConnections)
+	{
+		this(address, maxIdleConnections, DEFAULT_TIMEOUT_MILLISECONDS);
+	}
+	
+	/**
+	 * @param maxIdleConnections The number of connections kept open for reuse when not in use.
+	 * @param timeout The time, in milliseconds, to wait on connecting to or hearing from the
+	 *                server before the request fails, or zero to wait indefinitely.
+	 */
+	public RemoteAssetStreamFactory(InetSocketAddress address, int maxIdleConnections, int timeout)
+	{
+		m_address = address;
+		m_maxIdleConnections = maxIdleConnections;
+		m_timeout = timeout;
+	}
+	
+	@Override
+	public void dispose()
+	{
+		m_isDisposed = true;
+		
+		for(Connection c; (c = m_idleConnections.poll()) != null;)
+		{
+			m_idleConnectionCount.decrementAndGet();
+			c.close();
+		}
+	}
+	
+	@Override
+	public InputStream create(URI name) throws AssetStreamConstructionException
+	{
+		List<URI> names = new ArrayList<>(1);
+		names.add(name);
+		
+		Response response = request(names).get(0);
+		
+		if(response.m_contents == null)
+			throw new AssetStreamConstructionException(name, new RemoteAssetException(response.m_error));
+		
+		return new ByteArrayInputStream(response.m_contents);
+	}
+	
+	/**
+	 * Requests several assets at once, pipelining the requests.
+	 * 
+	 * @return The streams of the assets, in the order they were requested. Assets that could not be served are absent.
+	 * @throws AssetStreamConstructionException If communicating with the server failed.
+	 */
+	public Map<URI, InputStream> createAll(Collection<URI> names) throws AssetStreamConstructionException
+	{
+		List<URI> requested = new ArrayList<>(names);
+		List<Response> responses = request(requested);
+		Map<URI, InputStream> streams = new LinkedHashMap<>();
+		
+		for(int i = 0; i < requested.size(); i++)
+		{
+			if(responses.get(i).m_contents != null)
+				streams.put(requested.get(i), new ByteArrayInputStream(responses.get(i).m_contents));
+		}
+		
+		return streams;
+	}
+	
+	private List<Response> request(List<URI> names) throws AssetStreamConstructionException
+	{
+		Connection connection = m_idleConnections.poll();
+		boolean isPooled = connection != null;
+		
+		if(isPooled)
+			m_idleConnectionCount.decrementAndGet();
+		
+		try
+		{
+			while(true)
+			{
+				try
+				{
+					if(connection == null)
+						connection = new Connection(m_address, m_timeout);
+					
+					List<Response> responses = connection.exchange(names);
+					release(connection);
+					
+					return responses;
+				} catch (IOException e)
+				{
+					if(connection != null)
+						connection.close();
+					
+					connection = null;
+					
+					//A pooled connection may have been dropped by the server since it was last used, so retry once on a new one.
+					if(!isPooled)
+						throw e;
+					
+					isPooled = false;
+				}
+			}
+		} catch (IOException e)
+		{
+			throw new AssetStreamConstructionException(names.get(0), e);
+		}
+	}
+	
+	private void release(Connection connection)
+	{
+		if(!m_isDisposed && m_idleConnectionCount.incrementAndGet() <= m_maxIdleConnections)
+			m_idleConnections.add(connection);
+		else
+		{
+			m_idleConnectionCount.decrementAndGet();
+			connection.close();
+		}
+	}
+	
+	private static final class Response
+	{
+		private final byte[] m_contents;
+		private final String m_error;
+		
+		public Response(byte[] contents, String error)
+		{
+			m_contents = contents;
+			m_error = error;
+		}
+	}
+	
+	private static final class Connection
+	{
+		private final Socket m_socket;
+		private final DataInputStream m_in;
+		private final DataOutputStream m_out;
+		
+		public Connection(InetSocketAddress address, int timeout) throws IOException
+		{
+			m_socket = new Socket();
+			
+			try
+			{
+				m_socket.setTcpNoDelay(true);
+				m_socket.setSoTimeout(timeout);
+				m_socket.connect(address, timeout);
+				
+				m_in = new DataInputStream(new BufferedInputStream(m_socket.getInputStream()));
+				m_out = new DataOutputStream(new BufferedOutputStream(m_socket.getOutputStream()));
+			} catch (IOException e)
+			{
+				m_socket.close();
+				throw e;
+			}
+		}
+		
+		/**
+		 * Sends the requests and receives their responses, keeping up to
+		 * {@link #PIPELINE_DEPTH} requests in flight. Bounding the requests
+		 * in flight keeps both ends from blocking on full socket buffers.
+		 */
+		public List<Response> exchange(List<URI> names) throws IOException
+		{
+			List<Response> responses = new ArrayList<>(names.size());
+			int sent = 0;
+			
+			while(responses.size() < names.size())
+			{
+				for(; sent < names.size() && sent - responses.size() < PIPELINE_DEPTH; sent++)
+					m_out.writeUTF(names.get(sent).toString());
+				
+				m_out.flush();
+				responses.add(receive());
+			}
+			
+			return responses;
+		}
+		
+		private Response receive() throws IOException
+		{
+			byte status = m_in.readByte();
+			
+			switch(status)
+			{
+				case AssetServer.STATUS_OK:
+					long length = m_in.readLong();
+					
+					if(length < 0 || length > Integer.MAX_VALUE - 8)
+						throw new IOException("Asset of " + length + " bytes is too large to be received.");
+					
+					byte[] contents = new byte[(int)length];
+					m_in.readFully(contents);
+					
+					return new Response(contents, null);
+				case AssetServer.STATUS_NOT_FOUND:
+					return new Response(null, "Asset could not be resolved by the asset server.");
+				case AssetServer.STATUS_ERROR:
+					return new Response(null, m_in.readUTF());
+				default:
+					throw new IOException("Unrecognized asset server response status: " + status);
+			}
+		}
+		
+		public void close()
+		{
+			try
+			{
+				m_socket.close();
+			} catch (IOException e)
+			{
+				//Connection is being discarded regardless.
+			}
+		}
+	}
+	
+	public static final class RemoteAssetException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private RemoteAssetException(String message)
+		{
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,365 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.task;
+
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.ui.StatusDialogueFactory.StatusDialogue;
+import io.github.jevaengine.builder.util.StripedCounter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs builder tasks, split into weighted stages of parallel subtasks, on a
+ * fork-join pool. The progress of a running task may be bound to a
+ * {@link StatusDialogue}, or any other {@link ITaskStatusObserver}, which is
+ * then kept up to date with the current stage and the task's overall progress.
+ * Once the task completes, the observer is sent a final status, after which it
+ * is sent no further statuses.
+ *
+ * @author Jeremy
+ */
+public final class TaskRunner implements IDisposable
+{
+	private static final long STATUS_INTERVAL_MILLISECONDS = 50;
+	
+	private final ForkJoinPool m_pool;
+	
+	private final ScheduledExecutorService m_statusPublisher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "Task Status Publisher");
+			thread.setDaemon(true);
+			
+			return thread;
+		}
+	});
+	
+	public TaskRunner()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	public TaskRunner(int parallelism)
+	{
+		m_pool = new ForkJoinPool(parallelism);
+	}
+	
+	@Override
+	public void dispose()
+	{
+		m_pool.shutdownNow();
+		m_statusPublisher.shutdownNow();
+	}
+	
+	public RunningTask run(String name, List<TaskStage> stages)
+	{
+		return run(name, stages, (ITaskStatusObserver)null);
+	}
+	
+	/**
+	 * @param statusDialogue The dialogue to present the task's progress in, or null. Statuses are
+	 *                       published from other threads, so the dialogue is only kept up to date
+	 *                       while its owner updates it. The dialogue is not disposed of when the
+	 *                       task completes.
+	 */
+	public RunningTask run(String name, List<TaskStage> stages, final StatusDialogue statusDialogue)
+	{
+		if(statusDialogue == null)
+			return run(name, stages, (ITaskStatusObserver)null);
+		
+		return run(name, stages, new ITaskStatusObserver() {
+			@Override
+			public void statusChanged(String status, float progress)
+			{
+				statusDialogue.setStatus(status, progress);
+			}
+		});
+	}
+	
+	/**
+	 * @param statusObserver The observer to periodically notify of the task's progress, or null.
+	 */
+	public RunningTask run(String name, List<TaskStage> stages, ITaskStatusObserver statusObserver)
+	{
+		final RunningTask task = new RunningTask(name, stages, statusObserver);
+		
+		if(statusObserver != null)
+		{
+			task.m_statusPublisher = m_statusPublisher.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run()
+				{
+					task.publishStatus();
+				}
+			}, 0, STATUS_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+		}
+		
+		m_pool.execute(task.m_root);
+		
+		return task;
+	}
+	
+	public static final class RunningTask
+	{
+		private final String m_name;
+		private final List<TaskStage> m_stages;
+		private final StripedCounter[] m_stageProgress;
+		private final long[] m_stageWork;
+		private final float m_totalWeight;
+		private final ITaskStatusObserver m_statusObserver;
+		
+		private volatile int m_currentStage = 0;
+		private volatile ScheduledFuture<?> m_statusPublisher;
+		
+		//Guards publishing, so that a periodic status can not follow the final status.
+		private final Object m_statusLock = new Object();
+		private boolean m_isStatusFinal = false;
+		
+		private final AtomicBoolean m_isCancelled = new AtomicBoolean();
+		private final AtomicReference<Exception> m_failure = new AtomicReference<>();
+		
+		private final RecursiveAction m_root = new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute()
+			{
+				try
+				{
+					for(int i = 0; i < m_stages.size() && !RunningTask.this.isCancelled(); i++)
+					{
+						m_currentStage = i;
+						
+						StageMonitor monitor = new StageMonitor(i);
+						List<SubtaskAction> actions = new ArrayList<>();
+						
+						for(ISubtask subtask : m_stages.get(i).getSubtasks())
+							actions.add(new SubtaskAction(subtask, monitor));
+						
+						ForkJoinTask.invokeAll(actions);
+					}
+				} finally
+				{
+					ScheduledFuture<?> publisher = m_statusPublisher;
+					
+					if(publisher != null)
+						publisher.cancel(false);
+					
+					if(m_statusObserver != null)
+					{
+						boolean isComplete = !RunningTask.this.isCancelled() && m_failure.get() == null;
+						
+						//Waits for a periodic status being published to be sent first.
+						synchronized(m_statusLock)
+						{
+							m_isStatusFinal = true;
+							m_statusObserver.statusChanged(getStatus(), isComplete ? 1.0F : getProgress());
+						}
+					}
+				}
+			}
+		};
+		
+		private RunningTask(String name, List<TaskStage> stages, ITaskStatusObserver statusObserver)
+		{
+			m_name = name;
+			m_statusObserver = statusObserver;
+			m_stages = Collections.unmodifiableList(new ArrayList<>(stages));
+			m_stageProgress = new StripedCounter[m_stages.size()];
+			m_stageWork = new long[m_stages.size()];
+			
+			float totalWeight = 0;
+			
+			for(int i = 0; i < m_stages.size(); i++)
+			{
+				m_stageProgress[i] = new StripedCounter();
+				m_stageWork[i] = m_stages.get(i).getWork();
+				totalWeight += Math.max(0, m_stages.get(i).getWeight());
+			}
+			
+			m_totalWeight = totalWeight;
+		}
+		
+		public String getName()
+		{
+			return m_name;
+		}
+		
+		private void publishStatus()
+		{
+			synchronized(m_statusLock)
+			{
+				if(!m_isStatusFinal)
+					m_statusObserver.statusChanged(getStatus(), getProgress());
+			}
+		}
+		
+		/**
+		 * @return A description of the stage currently being run.
+		 */
+		public String getStatus()
+		{
+			if(m_stages.isEmpty())
+				return m_name;
+			
+			return m_name + ": " + m_stages.get(m_currentStage).getName();
+		}
+		
+		/**
+		 * @return The overall progress of the task, from zero to one.
+		 */
+		public float getProgress()
+		{
+			if(m_totalWeight <= 0)
+				return isDone() ? 1.0F : 0.0F;
+			
+			int currentStage = m_currentStage;
+			float progress = 0;
+			
+			for(int i = 0; i <= currentStage && i < m_stages.size(); i++)
+			{
+				float stageProgress;
+				
+				if(i < currentStage || m_stageWork[i] <= 0)
+					stageProgress = i < currentStage || isDone() ? 1.0F : 0.0F;
+				else
+					stageProgress = Math.min(1.0F, (float)m_stageProgress[i].sum() / m_stageWork[i]);
+				
+				progress += Math.max(0, m_stages.get(i).getWeight()) * stageProgress;
+			}
+			
+			return progress / m_totalWeight;
+		}
+		
+		/**
+		 * Requests that the task stop. Subtasks that have not begun are skipped
+		 * and running subtasks observe the request through their monitor.
+		 */
+		public void cancel()
+		{
+			m_isCancelled.set(true);
+		}
+		
+		public boolean isCancelled()
+		{
+			return m_isCancelled.get();
+		}
+		
+		public boolean isDone()
+		{
+			return m_root.isDone();
+		}
+		
+		/**
+		 * Waits for the task to complete.
+		 * 
+		 * @throws ExecutionException If a subtask failed, in which case the remaining subtasks were cancelled.
+		 * @throws CancellationException If the task was cancelled.
+		 */
+		public void await() throws InterruptedException, ExecutionException
+		{
+			try
+			{
+				m_root.get();
+			} catch (ExecutionException e)
+			{
+				//Subtask failures are recorded with their original cause below.
+			}
+			
+			Exception failure = m_failure.get();
+			
+			if(failure != null)
+				throw new ExecutionException(failure);
+			
+			if(isCancelled())
+				throw new CancellationException();
+		}
+		
+		private final class StageMonitor implements IProgressMonitor
+		{
+			private final int m_stage;
+			
+			public StageMonitor(int stage)
+			{
+				m_stage = stage;
+			}
+			
+			@Override
+			public void worked(long units)
+			{
+				m_stageProgress[m_stage].add(units);
+			}
+			
+			@Override
+			public boolean isCancelled()
+			{
+				return RunningTask.this.isCancelled();
+			}
+		}
+		
+		private final class SubtaskAction extends RecursiveAction
+		{
+			private static final long serialVersionUID = 1L;
+			
+			private final ISubtask m_subtask;
+			private final StageMonitor m_monitor;
+			
+			public SubtaskAction(ISubtask subtask, StageMonitor monitor)
+			{
+				m_subtask = subtask;
+				m_monitor = monitor;
+			}
+			
+			@Override
+			protected void compute()
+			{
+				if(m_monitor.isCancelled())
+					return;
+				
+				try
+				{
+					m_subtask.run(m_monitor);
+				} catch (Exception e)
+				{
+					if(m_failure.compareAndSet(null, e))
+						RunningTask.this.cancel();
+				}
+			}
+		}
+	}
+	
+	public interface ITaskStatusObserver
+	{
+		void statusChanged(String status, float progress);
+	}
+}
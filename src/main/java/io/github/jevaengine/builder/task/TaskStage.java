@@ -0,0 +1,69 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A step of a task, made up of subtasks that may run in parallel. A task's
+ * stages run one after another; each stage's weight determines its share of
+ * the task's overall progress.
+ *
+ * @author Jeremy
+ */
+public final class TaskStage
+{
+	private final String m_name;
+	private final float m_weight;
+	private final List<ISubtask> m_subtasks;
+	
+	public TaskStage(String name, float weight, List<? extends ISubtask> subtasks)
+	{
+		m_name = name;
+		m_weight = weight;
+		m_subtasks = Collections.unmodifiableList(new ArrayList<>(subtasks));
+	}
+	
+	public String getName()
+	{
+		return m_name;
+	}
+	
+	public float getWeight()
+	{
+		return m_weight;
+	}
+	
+	public List<ISubtask> getSubtasks()
+	{
+		return m_subtasks;
+	}
+	
+	long getWork()
+	{
+		long work = 0;
+		
+		for(ISubtask subtask : m_subtasks)
+			work += Math.max(0, subtask.getWork());
+		
+		return work;
+	}
+}
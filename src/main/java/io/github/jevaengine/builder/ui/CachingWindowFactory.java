@@ -0,0 +1,169 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.ui.IWindowFactory;
+import io.github.jevaengine.ui.NoSuchControlException;
+import io.github.jevaengine.ui.Window;
+import io.github.jevaengine.ui.WindowBehaviourInjector;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decorates a window factory such that, once a layout has been requested, a
+ * spare window for that layout is always being constructed in the background.
+ * Requests are served from the spare, leaving only the behaviour injection to
+ * the caller's thread, so reading and parsing the layout, style and fonts no
+ * longer lie on the path of opening a dialogue.
+ * 
+ * Spare windows have not been added to a window manager, so constructing them
+ * does not touch any state shared with the engine thread.
+ *
+ * @author Jeremy
+ */
+public final class CachingWindowFactory implements IWindowFactory, IDisposable
+{
+	private final IWindowFactory m_windowFactory;
+	
+	private final ExecutorService m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "Window Template Builder");
+			thread.setDaemon(true);
+			
+			return thread;
+		}
+	});
+	
+	private final ConcurrentHashMap<URI, Future<Window>> m_spares = new ConcurrentHashMap<>();
+	private volatile boolean m_isDisposed = false;
+	
+	public CachingWindowFactory(IWindowFactory windowFactory)
+	{
+		m_windowFactory = windowFactory;
+	}
+	
+	@Override
+	public void dispose()
+	{
+		m_isDisposed = true;
+		m_executor.shutdownNow();
+		
+		//Spares still being built are never waited on; they dispose of themselves once built.
+		for(Future<Window> spare : m_spares.values())
+		{
+			spare.cancel(true);
+			
+			if(spare.isDone() && !spare.isCancelled())
+			{
+				Window window = claim(spare);
+				
+				if(window != null)
+					window.dispose();
+			}
+		}
+		
+		m_spares.clear();
+	}
+	
+	/**
+	 * Begins constructing a spare window for the specified layout, if one is not
+	 * already available, such that the first request for it is also served quickly.
+	 */
+	public void prepare(final URI name)
+	{
+		if(m_spares.containsKey(name) || m_executor.isShutdown())
+			return;
+		
+		Future<Window> spare = m_executor.submit(new Callable<Window>() {
+			@Override
+			public Window call() throws WindowConstructionException
+			{
+				Window window = m_windowFactory.create(name);
+				
+				if(m_isDisposed && window != null)
+				{
+					window.dispose();
+					return null;
+				}
+				
+				return window;
+			}
+		});
+		
+		if(m_spares.putIfAbsent(name, spare) != null)
+			spare.cancel(true);
+	}
+	
+	private static Window claim(Future<Window> spare)
+	{
+		try
+		{
+			return spare.get();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException | CancellationException e)
+		{
+			return null;
+		}
+	}
+	
+	@Override
+	public Window create(URI name) throws WindowConstructionException
+	{
+		Future<Window> spare = m_spares.remove(name);
+		Window window = spare == null ? null : claim(spare);
+		
+		//Failed spares are constructed again here so that the caller sees the cause.
+		if(window == null)
+			window = m_windowFactory.create(name);
+		
+		prepare(name);
+		
+		return window;
+	}
+	
+	@Override
+	public Window create(URI name, WindowBehaviourInjector behaviourInject) throws WindowConstructionException
+	{
+		Window window = create(name);
+		
+		try
+		{
+			behaviourInject.inject(window);
+		} catch (NoSuchControlException e)
+		{
+			window.dispose();
+			throw new WindowConstructionException(name, e);
+		}
+		
+		return window;
+	}
+}
@@ -0,0 +1,318 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.AssetStreamMetricsMBean;
+import io.github.jevaengine.builder.ui.TimedWindowFactory.ConstructionTime;
+import io.github.jevaengine.math.Vector2D;
+import io.github.jevaengine.ui.Button;
+import io.github.jevaengine.ui.Button.IButtonPressObserver;
+import io.github.jevaengine.ui.IWindowFactory.WindowConstructionException;
+import io.github.jevaengine.ui.Label;
+import io.github.jevaengine.ui.NoSuchControlException;
+import io.github.jevaengine.ui.TextArea;
+import io.github.jevaengine.ui.ValueGuage;
+import io.github.jevaengine.ui.Window;
+import io.github.jevaengine.ui.WindowBehaviourInjector;
+import io.github.jevaengine.ui.WindowManager;
+import io.github.jevaengine.util.IObserverRegistry;
+import io.github.jevaengine.util.Observers;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+
+/**
+ * Creates a window presenting live diagnostics of the builder: frame times,
+ * heap allocation rate, the number of windows open and how long each layout
+ * takes to construct, and the hit rate of the asset resource cache.
+ *
+ * @author Jeremy
+ */
+public final class DiagnosticsWindowFactory
+{
+	private static final URI WINDOW_LAYOUT = URI.create("local:///ui/windows/diagnostics.jwl");
+	
+	private final WindowManager m_windowManager;
+	private final TimedWindowFactory m_windowFactory;
+	private final WindowCensus m_census;
+	
+	/**
+	 * @param windowFactory The factory through which the builder's windows are constructed,
+	 *                      whose construction times are presented.
+	 * @param census The census through which the builder's windows are counted, and through
+	 *               which the diagnostics window is itself counted.
+	 */
+	public DiagnosticsWindowFactory(WindowManager windowManager, TimedWindowFactory windowFactory, WindowCensus census)
+	{
+		m_windowManager = windowManager;
+		m_windowFactory = windowFactory;
+		m_census = census;
+	}
+	
+	/**
+	 * @param assetMetrics The asset metrics to present, or null if asset I/O is not instrumented.
+	 */
+	public DiagnosticsWindow create(AssetStreamMetricsMBean assetMetrics) throws WindowConstructionException
+	{
+		Observers observers = new Observers();
+		DiagnosticsBehaviourInjector behaviour = new DiagnosticsBehaviourInjector(observers);
+		
+		Window window = m_windowFactory.create(WINDOW_LAYOUT, behaviour);
+		m_windowManager.addWindow(window);
+		m_census.opened(window);
+		window.center();
+		
+		return new DiagnosticsWindow(observers, window, behaviour, m_windowFactory, m_census, assetMetrics);
+	}
+	
+	/**
+	 * A window presenting live diagnostics. The diagnostics are sampled in
+	 * {@link #update(int)}, which must be invoked once per frame from the
+	 * engine thread; controls are only refreshed a few times a second so as to
+	 * not distort the frame times being measured.
+	 */
+	public static final class DiagnosticsWindow implements IDisposable
+	{
+		private static final int SAMPLE_INTERVAL = 250;
+		private static final float MIN_FRAME_TIME_SCALE = 34;
+		private static final float MIN_ALLOCATION_RATE_SCALE = 1;
+		private static final int MAX_LISTED_LAYOUTS = 6;
+		
+		private final IObserverRegistry m_observers;
+		private final Window m_window;
+		private final DiagnosticsBehaviourInjector m_behaviour;
+		
+		private final TimedWindowFactory m_windowFactory;
+		private final WindowCensus m_census;
+		private final AssetStreamMetricsMBean m_assetMetrics;
+		private final MemoryMXBean m_memory = ManagementFactory.getMemoryMXBean();
+		
+		private final History m_frameTimes = new History(DiagnosticsBehaviourInjector.HISTORY_LENGTH);
+		private final History m_allocationRates = new History(DiagnosticsBehaviourInjector.HISTORY_LENGTH);
+		
+		private int m_sampleTime = 0;
+		private int m_sampleFrames = 0;
+		private int m_sampleMaxFrameTime = 0;
+		private long m_lastHeapUsed;
+		
+		private DiagnosticsWindow(IObserverRegistry observers, Window window, DiagnosticsBehaviourInjector behaviour, TimedWindowFactory windowFactory, WindowCensus census, AssetStreamMetricsMBean assetMetrics)
+		{
+			m_observers = observers;
+			m_window = window;
+			m_behaviour = behaviour;
+			m_windowFactory = windowFactory;
+			m_census = census;
+			m_assetMetrics = assetMetrics;
+			m_lastHeapUsed = m_memory.getHeapMemoryUsage().getUsed();
+		}
+		
+		@Override
+		public void dispose()
+		{
+			m_census.dispose(m_window);
+		}
+		
+		public void setVisible(boolean isVisible)
+		{
+			m_census.setVisible(m_window, isVisible);
+		}
+		
+		public void setLocation(Vector2D location)
+		{
+			m_window.setLocation(location);
+		}
+		
+		public void center()
+		{
+			m_window.center();
+		}
+		
+		public IObserverRegistry getObservers()
+		{
+			return m_observers;
+		}
+		
+		/**
+		 * @param deltaTime The duration of the last frame, in milliseconds.
+		 */
+		public void update(int deltaTime)
+		{
+			m_sampleTime += deltaTime;
+			m_sampleFrames++;
+			m_sampleMaxFrameTime = Math.max(m_sampleMaxFrameTime, deltaTime);
+			
+			if(m_sampleTime < SAMPLE_INTERVAL)
+				return;
+			
+			float meanFrameTime = (float)m_sampleTime / m_sampleFrames;
+			m_frameTimes.push(m_sampleMaxFrameTime);
+			
+			m_behaviour.m_lblFrameTime.setText(String.format("Frame: %.1f ms mean, %d ms worst", meanFrameTime, m_sampleMaxFrameTime));
+			m_behaviour.setHistory(m_behaviour.m_frameHistory, m_frameTimes, MIN_FRAME_TIME_SCALE);
+			
+			sampleAllocationRate();
+			
+			m_behaviour.m_lblWindows.setText(String.format("Windows: %d open, %d visible", m_census.getOpenWindowCount(), m_census.getVisibleWindowCount()));
+			
+			if(m_assetMetrics != null)
+			{
+				long hits = m_assetMetrics.getResourceCacheHits();
+				long lookups = hits + m_assetMetrics.getResourceCacheMisses();
+				m_behaviour.m_lblAssetCache.setText(String.format("Asset cache: %.1f%% of %d hit, %d loads", lookups == 0 ? 0.0F : 100.0F * hits / lookups, lookups, m_assetMetrics.getLocalLoads() + m_assetMetrics.getFileLoads()));
+			} else
+				m_behaviour.m_lblAssetCache.setText("Asset cache: not instrumented");
+			
+			StringBuilder construction = new StringBuilder();
+			int listed = 0;
+			
+			for(ConstructionTime t : m_windowFactory.getConstructionTimes())
+			{
+				if(listed++ == MAX_LISTED_LAYOUTS)
+					break;
+				
+				construction.append(String.format("%.1f ms mean, %.1f ms last (%d) %s%n", t.getMeanNanoseconds() / 1000000.0F, t.getLastNanoseconds() / 1000000.0F, t.getCount(), t.getLayout().getPath()));
+			}
+			
+			m_behaviour.m_txtConstruction.setText(construction.toString());
+			
+			m_sampleTime = 0;
+			m_sampleFrames = 0;
+			m_sampleMaxFrameTime = 0;
+		}
+		
+		private void sampleAllocationRate()
+		{
+			long heapUsed = m_memory.getHeapMemoryUsage().getUsed();
+			
+			//When the heap shrinks a collection has occurred, and at least what is now in use was allocated since.
+			long allocated = heapUsed >= m_lastHeapUsed ? heapUsed - m_lastHeapUsed : heapUsed;
+			m_lastHeapUsed = heapUsed;
+			
+			float rate = allocated / (1024.0F * 1024.0F) * 1000.0F / m_sampleTime;
+			m_allocationRates.push(rate);
+			
+			m_behaviour.m_lblAllocation.setText(String.format("Allocation: %.1f MiB/s", rate));
+			m_behaviour.setHistory(m_behaviour.m_allocationHistory, m_allocationRates, MIN_ALLOCATION_RATE_SCALE);
+		}
+	}
+	
+	public interface IDiagnosticsWindowObserver
+	{
+		void close();
+	}
+	
+	private static final class History
+	{
+		private final float[] m_samples;
+		private int m_next = 0;
+		
+		public History(int length)
+		{
+			m_samples = new float[length];
+		}
+		
+		public void push(float sample)
+		{
+			m_samples[m_next] = sample;
+			m_next = (m_next + 1) % m_samples.length;
+		}
+		
+		/**
+		 * @param age The number of samples pushed since the requested sample, zero being the latest.
+		 */
+		public float get(int age)
+		{
+			return m_samples[(m_next - 1 - age + 2 * m_samples.length) % m_samples.length];
+		}
+		
+		public int getLength()
+		{
+			return m_samples.length;
+		}
+		
+		public float getMax()
+		{
+			float max = 0;
+			
+			for(float s : m_samples)
+				max = Math.max(max, s);
+			
+			return max;
+		}
+	}
+	
+	private static final class DiagnosticsBehaviourInjector extends WindowBehaviourInjector
+	{
+		private static final int HISTORY_LENGTH = 10;
+		
+		private final Observers m_observers;
+		
+		private Label m_lblFrameTime;
+		private Label m_lblAllocation;
+		private Label m_lblWindows;
+		private Label m_lblAssetCache;
+		private TextArea m_txtConstruction;
+		
+		private final ValueGuage[] m_frameHistory = new ValueGuage[HISTORY_LENGTH];
+		private final ValueGuage[] m_allocationHistory = new ValueGuage[HISTORY_LENGTH];
+		
+		public DiagnosticsBehaviourInjector(Observers observers)
+		{
+			m_observers = observers;
+		}
+		
+		/**
+		 * Renders the history as bars, latest first, scaled against the
+		 * greatest sample in the history or the given minimum scale.
+		 */
+		private void setHistory(ValueGuage[] bars, History history, float minScale)
+		{
+			float scale = Math.max(minScale, history.getMax());
+			
+			for(int i = 0; i < history.getLength(); i++)
+				bars[i].setValue(history.get(i) / scale);
+		}
+		
+		@Override
+		protected void doInject() throws NoSuchControlException
+		{
+			getControl(Button.class, "btnClose").getObservers().add(new IButtonPressObserver() {
+				@Override
+				public void onPress() {
+					m_observers.raise(IDiagnosticsWindowObserver.class).close();
+				}
+			});
+			
+			m_lblFrameTime = getControl(Label.class, "lblFrameTime");
+			m_lblAllocation = getControl(Label.class, "lblAllocation");
+			m_lblWindows = getControl(Label.class, "lblWindows");
+			m_lblAssetCache = getControl(Label.class, "lblAssetCache");
+			m_txtConstruction = getControl(TextArea.class, "txtConstruction");
+			
+			for(int i = 0; i < HISTORY_LENGTH; i++)
+			{
+				m_frameHistory[i] = getControl(ValueGuage.class, "frameHistory" + i);
+				m_allocationHistory[i] = getControl(ValueGuage.class, "allocationHistory" + i);
+				m_frameHistory[i].setValue(0);
+				m_allocationHistory[i].setValue(0);
+			}
+		}
+	}
+}
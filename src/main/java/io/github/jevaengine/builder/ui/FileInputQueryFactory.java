@@ -19,6 +19,8 @@
 package io.github.jevaengine.builder.ui;
 
 import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.ProjectPathIndex;
+import io.github.jevaengine.builder.ui.WindowPool.PooledWindow;
 import io.github.jevaengine.builder.ui.MessageBoxFactory.IMessageBoxObserver;
 import io.github.jevaengine.builder.ui.MessageBoxFactory.MessageBox;
 import io.github.jevaengine.math.Vector2D;
@@ -35,47 +37,118 @@ import io.github.jevaengine.ui.WindowManager;
 import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.Observers;
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JFileChooser;
 import javax.swing.SwingUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public final class FileInputQueryFactory
+public final class FileInputQueryFactory implements IDisposable
 {
 	private static final URI WINDOW_LAYOUT = URI.create("local:///ui/windows/fileInput.jwl");
+	private static final int SUGGESTION_COUNT = 8;
 	
 	private final WindowManager m_windowManager;
 	private final IWindowFactory m_windowFactory;
 	private final URI m_base;
 	
+	private final WindowPool<FileInputQueryBehaviourInjector> m_pool;
+	private final MessageBoxFactory m_messageBoxFactory;
+	private final ProjectPathIndex m_pathIndex;
+	
 	public FileInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory, URI base)
+	{
+		this(windowManager, windowFactory, base, 0);
+	}
+	
+	/**
+	 * @param poolSize The number of disposed queries kept hidden in the window manager for reuse.
+	 */
+	public FileInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory, URI base, int poolSize)
+	{
+		this(windowManager, windowFactory, base, poolSize, null);
+	}
+	
+	/**
+	 * @param poolSize The number of disposed queries kept hidden in the window manager for reuse.
+	 * @param pathIndex An index of the project under base, used to suggest completions of the
+	 *                  path being entered, or null to not offer completions.
+	 */
+	public FileInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory, URI base, int poolSize, ProjectPathIndex pathIndex)
+	{
+		this(windowManager, windowFactory, base, poolSize, pathIndex, new WindowCensus());
+	}
+	
+	/**
+	 * @param poolSize The number of disposed queries kept hidden in the window manager for reuse.
+	 * @param pathIndex An index of the project under base, used to suggest completions of the
+	 *                  path being entered, or null to not offer completions.
+	 * @param census The census through which the queries' windows, and those of their message boxes, are counted.
+	 */
+	public FileInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory, URI base, int poolSize, ProjectPathIndex pathIndex, WindowCensus census)
 	{
 		m_windowManager = windowManager;
 		m_windowFactory = windowFactory;
 		m_base = base;
+		m_pathIndex = pathIndex;
+		m_pool = new WindowPool<>(poolSize, census);
+		m_messageBoxFactory = new MessageBoxFactory(windowManager, windowFactory, poolSize, census);
 	}
 	
 	public FileInputQuery create(FileInputQueryMode mode, String query, URI defaultValue) throws WindowConstructionException
 	{
 		Observers observers = new Observers();
-
-		Window window = m_windowFactory.create(WINDOW_LAYOUT, new FileInputQueryBehaviourInjector(observers, query, defaultValue, mode));
-		m_windowManager.addWindow(window);
+		PooledWindow<FileInputQueryBehaviourInjector> pooled = m_pool.poll();
+		
+		if(pooled != null)
+		{
+			FileInputQueryBehaviourInjector behaviour = pooled.getState();
+			behaviour.rebind(observers, query, defaultValue, mode);
+			pooled.setVisible(true);
+		} else
+		{
+			FileInputQueryBehaviourInjector behaviour = new FileInputQueryBehaviourInjector(observers, query, defaultValue, mode);
+			Window window = m_windowFactory.create(WINDOW_LAYOUT, behaviour);
+			m_windowManager.addWindow(window);
+			pooled = m_pool.add(window, behaviour);
+		}
 			
-		window.center();
-		return new FileInputQuery(observers, window);
+		pooled.center();
+		return new FileInputQuery(observers, pooled);
 	}
 	
+	/**
+	 * Disposes of the queries retained for reuse. Those disposed of afterwards are
+	 * not retained.
+	 */
+	@Override
+	public void dispose()
+	{
+		m_pool.drain();
+		m_messageBoxFactory.dispose();
+	}
+	
+	/**
+	 * A query for a path in the project. Selections made in the file browser
+	 * are made on the Swing event dispatch thread, and are only ever applied to
+	 * the query on the engine thread: by {@link #update()}, and when the query
+	 * is confirmed. The owner of the query should invoke {@link #update()} once
+	 * per frame so that a selection is shown as soon as it is made.
+	 */
 	public static class FileInputQuery implements IDisposable
 	{
 		private final IObserverRegistry m_observers;
 		
-		private final Window m_window;
+		private final PooledWindow<FileInputQueryBehaviourInjector> m_window;
 		
-		private FileInputQuery(IObserverRegistry observers, Window window)
+		private FileInputQuery(IObserverRegistry observers, PooledWindow<FileInputQueryBehaviourInjector> window)
 		{
 			m_observers = observers;
 			m_window = window;
@@ -84,7 +157,7 @@ public final class FileInputQueryFactory
 		@Override
 		public void dispose()
 		{
-			m_window.dispose();
+			m_window.release();
 		}
 		
 		public void setVisible(boolean isVisible)
@@ -110,16 +183,53 @@ public final class FileInputQueryFactory
 		public void setTopMost(boolean b) {
 			m_window.setTopMost(b);
 		}
+		
+		/**
+		 * Applies the selection made in the file browser, if one has been made
+		 * since the last update, and refreshes the suggested completion of the
+		 * entered path. Must be invoked from the engine thread.
+		 */
+		public void update()
+		{
+			if(m_window.isCurrent())
+			{
+				m_window.getState().applyBrowseResults();
+				m_window.getState().updateSuggestion();
+			}
+		}
+		
+		/**
+		 * @return Paths in the project that complete the entered path, best matches first.
+		 */
+		public List<String> getCompletions(int maxResults)
+		{
+			if(!m_window.isCurrent())
+				return Collections.emptyList();
+			
+			return m_window.getState().getCompletions(maxResults);
+		}
 	}
 	
 	private class FileInputQueryBehaviourInjector extends WindowBehaviourInjector
 	{
 		private final Logger m_logger = LoggerFactory.getLogger(FileInputQueryFactory.class);
-		private final Observers m_observers;
+		private Observers m_observers;
 		private final String m_query;
 		
-		private final URI m_defaultValue;
-		private final FileInputQueryMode m_mode;
+		private URI m_defaultValue;
+		private FileInputQueryMode m_mode;
+		
+		private Label m_lblQuery;
+		private TextArea m_txtValue;
+		private Label m_lblSuggestion;
+		
+		private String m_completedText = null;
+		private String m_suggestion = null;
+		
+		//Selections made on the Swing event dispatch thread, to be applied on the engine thread.
+		private final Queue<BrowseResult> m_browseResults = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean m_isBrowsing = new AtomicBoolean();
+		private volatile int m_binding = 0;
 
 		public FileInputQueryBehaviourInjector(Observers observers, String query, URI defaultValue, FileInputQueryMode mode)
 		{
@@ -129,11 +239,131 @@ public final class FileInputQueryFactory
 			m_mode = mode;
 		}
 		
+		public void rebind(Observers observers, String query, URI defaultValue, FileInputQueryMode mode)
+		{
+			m_binding++;
+			m_browseResults.clear();
+			
+			m_observers = observers;
+			m_defaultValue = defaultValue;
+			m_mode = mode;
+			
+			m_lblQuery.setText(query);
+			m_txtValue.setText(m_base.relativize(defaultValue).toString());
+			
+			m_completedText = null;
+			m_suggestion = null;
+			m_lblSuggestion.setText("");
+		}
+		
+		private void applyBrowseResults()
+		{
+			String selection = null;
+			
+			for(BrowseResult result; (result = m_browseResults.poll()) != null;)
+			{
+				//Results from a browser opened before the window was pooled belong to its previous user.
+				if(result.m_binding == m_binding)
+					selection = result.m_path;
+			}
+			
+			if(selection != null)
+				m_txtValue.setText(selection);
+		}
+		
+		public List<String> getCompletions(int maxResults)
+		{
+			String text = m_txtValue.getText();
+			
+			if(m_pathIndex == null || text.isEmpty())
+				return Collections.emptyList();
+			
+			boolean directories = m_mode == FileInputQueryMode.OpenDirectory;
+			List<String> matches = m_pathIndex.complete(text, directories, maxResults);
+			
+			if(matches.size() < maxResults)
+			{
+				for(String match : m_pathIndex.fuzzyComplete(text, directories, maxResults))
+				{
+					if(matches.size() < maxResults && !matches.contains(match))
+						matches.add(match);
+				}
+			}
+			
+			List<String> completions = new ArrayList<>(matches.size());
+			
+			for(String match : matches)
+				completions.add("/" + match);
+			
+			return completions;
+		}
+		
+		private void updateSuggestion()
+		{
+			String text = m_txtValue.getText();
+			
+			if(text.equals(m_completedText))
+				return;
+			
+			m_completedText = text;
+			List<String> completions = getCompletions(SUGGESTION_COUNT);
+			
+			m_suggestion = completions.isEmpty() || completions.get(0).equals(text) ? null : completions.get(0);
+			m_lblSuggestion.setText(m_suggestion == null ? "" : m_suggestion);
+		}
+		
+		private void browse()
+		{
+			if(!m_isBrowsing.compareAndSet(false, true))
+				return;
+			
+			final int binding = m_binding;
+			final URI base = m_base;
+			final URI defaultValue = m_defaultValue;
+			final FileInputQueryMode mode = m_mode;
+			
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run()
+				{
+					try
+					{
+						JFileChooser c = new JFileChooser(defaultValue.isAbsolute() ? new File(defaultValue) : new File(new File(base), defaultValue.toString()));
+						
+						int result = 0;
+						
+						switch(mode)
+						{
+						case SaveFile:
+							result = c.showSaveDialog(null);
+							break;
+						case OpenDirectory:
+							c.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+							result = c.showOpenDialog(null);
+						break;
+						case OpenFile:
+							result = c.showOpenDialog(null);
+							break;
+						default:
+							throw new RuntimeException("Unrecognized mode");
+						}
+						
+						if(result == JFileChooser.APPROVE_OPTION)
+							m_browseResults.add(new BrowseResult(binding, URI.create("/").resolve(base.relativize(c.getSelectedFile().toURI())).toString()));
+					} finally
+					{
+						m_isBrowsing.set(false);
+					}
+				}
+			});
+		}
+		
 		private void displayMessage(String cause)
 		{
 			try
 			{
-				final MessageBox msgBox = new MessageBoxFactory(m_windowManager, m_windowFactory).create(cause);
+				final MessageBox msgBox = m_messageBoxFactory.create(cause);
 				
 				msgBox.getObservers().add(new IMessageBoxObserver() {
 					@Override
@@ -152,13 +382,19 @@ public final class FileInputQueryFactory
 		{
 			final TextArea txtValue = getControl(TextArea.class, "txtValue");
 			
-			getControl(Label.class, "lblQuery").setText(m_query);
+			m_lblQuery = getControl(Label.class, "lblQuery");
+			m_lblSuggestion = getControl(Label.class, "lblSuggestion");
+			m_txtValue = txtValue;
+			
+			m_lblQuery.setText(m_query);
 			txtValue.setText(m_base.relativize(m_defaultValue).toString());
 			
 			getControl(Button.class, "btnOkay").getObservers().add(new IButtonPressObserver() {
 				@Override
 			public void onPress() {
 				
+				applyBrowseResults();
+				
 				try
 				{
 					URI path = new URI(txtValue.getText());
@@ -190,47 +426,32 @@ public final class FileInputQueryFactory
 			getControl(Button.class, "btnBrowse").getObservers().add(new IButtonPressObserver() {
 				@Override
 				public void onPress() {
-					
-					try
-					{
-						SwingUtilities.invokeAndWait(new Runnable() {
-	
-							@Override
-							public void run()
-							{
-								JFileChooser c = new JFileChooser(m_defaultValue.isAbsolute() ? new File(m_defaultValue) : new File(new File(m_base), m_defaultValue.toString()));
-								
-								int result = 0;
-								
-								switch(m_mode)
-								{
-								case SaveFile:
-									result = c.showSaveDialog(null);
-									break;
-								case OpenDirectory:
-									c.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-									result = c.showOpenDialog(null);
-								break;
-								case OpenFile:
-									result = c.showOpenDialog(null);
-									break;
-								default:
-									throw new RuntimeException("Unrecognized mode");
-								}
-								
-								if(result == JFileChooser.APPROVE_OPTION)
-									txtValue.setText(URI.create("/").resolve(m_base.relativize(c.getSelectedFile().toURI())).toString());
-							}
-						});
-					} catch (InvocationTargetException | InterruptedException e)
-					{
-						throw new RuntimeException(e);
-					}
+					browse();
+				}
+			});
+			
+			getControl(Button.class, "btnComplete").getObservers().add(new IButtonPressObserver() {
+				@Override
+				public void onPress() {
+					if(m_suggestion != null)
+						txtValue.setText(m_suggestion);
 				}
 			});
 		}
 	}
 	
+	private static final class BrowseResult
+	{
+		private final int m_binding;
+		private final String m_path;
+		
+		public BrowseResult(int binding, String path)
+		{
+			m_binding = binding;
+			m_path = path;
+		}
+	}
+	
 	public enum FileInputQueryMode
 	{
 		OpenDirectory,
@@ -0,0 +1,183 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.builder.config.BinaryDocument;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The glyph regions of a font (.juif), indexed directly by character. Regions
+ * are held in a single primitive array spanning the range of characters the
+ * font defines, so looking up a glyph involves no hashing or boxing.
+ *
+ * @author Jeremy
+ */
+public final class GlyphTable
+{
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int WIDTH = 2;
+	private static final int HEIGHT = 3;
+	private static final int STRIDE = 4;
+	
+	private final char m_firstChar;
+	private final int[] m_regions;
+	private final int m_lineHeight;
+	
+	private GlyphTable(char firstChar, int[] regions, int lineHeight)
+	{
+		m_firstChar = firstChar;
+		m_regions = regions;
+		m_lineHeight = lineHeight;
+	}
+	
+	public static GlyphTable load(IAssetStreamFactory assetFactory, URI font) throws AssetStreamConstructionException
+	{
+		try(InputStream is = assetFactory.create(font))
+		{
+			return create(BinaryDocument.load(is));
+		} catch (IOException | IllegalArgumentException e)
+		{
+			throw new AssetStreamConstructionException(font, e);
+		}
+	}
+	
+	/**
+	 * @param fontDocument A font document, as read by {@link BinaryDocument#load(InputStream)}.
+	 */
+	public static GlyphTable create(Object fontDocument)
+	{
+		if(!(fontDocument instanceof Map) || !(((Map<?, ?>)fontDocument).get("glyphs") instanceof List))
+			throw new IllegalArgumentException("Document does not describe a font.");
+		
+		List<?> glyphs = (List<?>)((Map<?, ?>)fontDocument).get("glyphs");
+		
+		int first = Character.MAX_VALUE;
+		int last = Character.MIN_VALUE;
+		
+		for(Object glyph : glyphs)
+		{
+			int c = getInt(glyph, "char");
+			first = Math.min(first, c);
+			last = Math.max(last, c);
+		}
+		
+		if(glyphs.isEmpty())
+			return new GlyphTable((char)0, new int[0], 0);
+		
+		int[] regions = new int[(last - first + 1) * STRIDE];
+		
+		//Characters the font does not define are marked with a negative width.
+		for(int i = WIDTH; i < regions.length; i += STRIDE)
+			regions[i] = -1;
+		
+		int lineHeight = 0;
+		
+		for(Object glyph : glyphs)
+		{
+			Object region = ((Map<?, ?>)glyph).get("region");
+			int offset = (getInt(glyph, "char") - first) * STRIDE;
+			
+			regions[offset + X] = getInt(region, "x");
+			regions[offset + Y] = getInt(region, "y");
+			regions[offset + WIDTH] = getInt(region, "width");
+			regions[offset + HEIGHT] = getInt(region, "height");
+			
+			lineHeight = Math.max(lineHeight, regions[offset + HEIGHT]);
+		}
+		
+		return new GlyphTable((char)first, regions, lineHeight);
+	}
+	
+	private static int getInt(Object object, String name)
+	{
+		if(!(object instanceof Map) || !(((Map<?, ?>)object).get(name) instanceof Number))
+			throw new IllegalArgumentException("Font glyph is missing its '" + name + "' value.");
+		
+		long value = ((Number)((Map<?, ?>)object).get(name)).longValue();
+		
+		if(value < 0 || value > Character.MAX_VALUE)
+			throw new IllegalArgumentException("Font glyph '" + name + "' value is out of range: " + value);
+		
+		return (int)value;
+	}
+	
+	private int offsetOf(char c)
+	{
+		int offset = (c - m_firstChar) * STRIDE;
+		
+		if(offset < 0 || offset >= m_regions.length || m_regions[offset + WIDTH] < 0)
+			return -1;
+		
+		return offset;
+	}
+	
+	public boolean hasGlyph(char c)
+	{
+		return offsetOf(c) >= 0;
+	}
+	
+	public int getX(char c)
+	{
+		int offset = offsetOf(c);
+		return offset < 0 ? 0 : m_regions[offset + X];
+	}
+	
+	public int getY(char c)
+	{
+		int offset = offsetOf(c);
+		return offset < 0 ? 0 : m_regions[offset + Y];
+	}
+	
+	/**
+	 * @return The width of the character's glyph, or zero if the font does not define it.
+	 */
+	public int getWidth(char c)
+	{
+		int offset = offsetOf(c);
+		return offset < 0 ? 0 : m_regions[offset + WIDTH];
+	}
+	
+	public int getHeight(char c)
+	{
+		int offset = offsetOf(c);
+		return offset < 0 ? 0 : m_regions[offset + HEIGHT];
+	}
+	
+	public int getLineHeight()
+	{
+		return m_lineHeight;
+	}
+	
+	public int measure(CharSequence text)
+	{
+		int width = 0;
+		
+		for(int i = 0; i < text.length(); i++)
+			width += getWidth(text.charAt(i));
+		
+		return width;
+	}
+}
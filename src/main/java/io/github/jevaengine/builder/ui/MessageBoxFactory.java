@@ -19,6 +19,7 @@
 package io.github.jevaengine.builder.ui;
 
 import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.ui.WindowPool.PooledWindow;
 import io.github.jevaengine.math.Vector2D;
 import io.github.jevaengine.ui.Button;
 import io.github.jevaengine.ui.Button.IButtonPressObserver;
@@ -33,35 +34,76 @@ import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.Observers;
 import java.net.URI;
 
-public final class MessageBoxFactory
+public final class MessageBoxFactory implements IDisposable
 {
 	private static final URI WINDOW_LAYOUT = URI.create("local:///ui/windows/messagebox.jwl");
 
 	private final WindowManager m_windowManager;
 	private final IWindowFactory m_windowFactory;
+	private final WindowPool<MessageBoxBehaviourInjector> m_pool;
 	
 	public MessageBoxFactory(WindowManager windowManager, IWindowFactory windowFactory)
+	{
+		this(windowManager, windowFactory, 0);
+	}
+	
+	/**
+	 * @param poolSize The number of disposed message boxes kept hidden in the window manager for reuse.
+	 */
+	public MessageBoxFactory(WindowManager windowManager, IWindowFactory windowFactory, int poolSize)
+	{
+		this(windowManager, windowFactory, poolSize, new WindowCensus());
+	}
+	
+	/**
+	 * @param poolSize The number of disposed message boxes kept hidden in the window manager for reuse.
+	 * @param census The census through which the message boxes' windows are counted.
+	 */
+	public MessageBoxFactory(WindowManager windowManager, IWindowFactory windowFactory, int poolSize, WindowCensus census)
 	{
 		m_windowManager = windowManager;
 		m_windowFactory = windowFactory;
+		m_pool = new WindowPool<>(poolSize, census);
 	}
 	
 	public MessageBox create(String message) throws WindowConstructionException
 	{
 		Observers observers = new Observers();
-		Window window = m_windowFactory.create(WINDOW_LAYOUT, new MessageBoxBehaviourInjector(observers, message));
-		m_windowManager.addWindow(window);
+		PooledWindow<MessageBoxBehaviourInjector> pooled = m_pool.poll();
+		
+		if(pooled != null)
+		{
+			MessageBoxBehaviourInjector behaviour = pooled.getState();
+			behaviour.rebind(observers, message);
+			pooled.setVisible(true);
+		} else
+		{
+			MessageBoxBehaviourInjector behaviour = new MessageBoxBehaviourInjector(observers, message);
+			Window window = m_windowFactory.create(WINDOW_LAYOUT, behaviour);
+			m_windowManager.addWindow(window);
+			pooled = m_pool.add(window, behaviour);
+		}
 		
-		window.center();
-		return new MessageBox(observers, window);
+		pooled.center();
+		return new MessageBox(observers, pooled);
+	}
+	
+	/**
+	 * Disposes of the message boxes retained for reuse. Those disposed of afterwards are
+	 * not retained.
+	 */
+	@Override
+	public void dispose()
+	{
+		m_pool.drain();
 	}
 	
 	public static final class MessageBox implements IDisposable
 	{
 		private final IObserverRegistry m_observers;
-		private final Window m_window;
+		private final PooledWindow<MessageBoxBehaviourInjector> m_window;
 		
-		private MessageBox(IObserverRegistry observers, Window window)
+		private MessageBox(IObserverRegistry observers, PooledWindow<MessageBoxBehaviourInjector> window)
 		{
 			m_observers = observers;
 			m_window = window;
@@ -70,7 +112,7 @@ public final class MessageBoxFactory
 		@Override
 		public void dispose()
 		{
-			m_window.dispose();
+			m_window.release();
 		}
 		
 		public void setLocation(Vector2D location)
@@ -100,8 +142,10 @@ public final class MessageBoxFactory
 	
 	private class MessageBoxBehaviourInjector extends WindowBehaviourInjector
 	{
-		private final Observers m_observers;
-		private final String m_message;
+		private Observers m_observers;
+		private String m_message;
+		
+		private TextArea m_txtMessage;
 		
 		public MessageBoxBehaviourInjector(Observers observers, String message)
 		{
@@ -109,6 +153,13 @@ public final class MessageBoxFactory
 			m_message = message;
 		}
 		
+		public void rebind(Observers observers, String message)
+		{
+			m_observers = observers;
+			m_message = message;
+			m_txtMessage.setText(message);
+		}
+		
 		@Override
 		protected void doInject() throws NoSuchControlException
 		{
@@ -119,7 +170,8 @@ public final class MessageBoxFactory
 				}
 			});
 			
-			getControl(TextArea.class, "txtMessage").setText(m_message);
+			m_txtMessage = getControl(TextArea.class, "txtMessage");
+			m_txtMessage.setText(m_message);
 		}
 	}
 }
@@ -19,6 +19,7 @@
 package io.github.jevaengine.builder.ui;
 
 import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.ui.WindowPool.PooledWindow;
 import io.github.jevaengine.math.Vector2D;
 import io.github.jevaengine.ui.IWindowFactory;
 import io.github.jevaengine.ui.IWindowFactory.WindowConstructionException;
@@ -28,22 +29,53 @@ import io.github.jevaengine.ui.ValueGuage;
 import io.github.jevaengine.ui.Window;
 import io.github.jevaengine.ui.WindowManager;
 import java.net.URI;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class StatusDialogueFactory
+public class StatusDialogueFactory implements IDisposable
 {
 	private static final URI WINDOW_LAYOUT = URI.create("local:///ui/windows/status.jwl");
 	
 	private final WindowManager m_windowManager;
 	private final IWindowFactory m_windowFactory;
+	private final WindowPool<StatusControls> m_pool;
 	
 	public StatusDialogueFactory(WindowManager windowManager, IWindowFactory windowFactory)
+	{
+		this(windowManager, windowFactory, 0);
+	}
+	
+	/**
+	 * @param poolSize The number of disposed dialogues kept hidden in the window manager for reuse.
+	 */
+	public StatusDialogueFactory(WindowManager windowManager, IWindowFactory windowFactory, int poolSize)
+	{
+		this(windowManager, windowFactory, poolSize, new WindowCensus());
+	}
+	
+	/**
+	 * @param poolSize The number of disposed dialogues kept hidden in the window manager for reuse.
+	 * @param census The census through which the dialogues' windows are counted.
+	 */
+	public StatusDialogueFactory(WindowManager windowManager, IWindowFactory windowFactory, int poolSize, WindowCensus census)
 	{
 		m_windowManager = windowManager;
 		m_windowFactory = windowFactory;
+		m_pool = new WindowPool<>(poolSize, census);
 	}
 	
 	public StatusDialogue create() throws WindowConstructionException
 	{
+		PooledWindow<StatusControls> pooled = m_pool.poll();
+		
+		if(pooled != null)
+		{
+			StatusDialogue dialogue = new StatusDialogue(pooled);
+			dialogue.setStatus("", 0);
+			
+			pooled.setVisible(true);
+			pooled.center();
+			return dialogue;
+		}
 
 		Window window = m_windowFactory.create(WINDOW_LAYOUT);	
 		m_windowManager.addWindow(window);
@@ -53,7 +85,7 @@ public class StatusDialogueFactory
 		{
 			ValueGuage statusGauge = window.getControl(ValueGuage.class, "progress");
 			Label statusLabel = window.getControl(Label.class, "lblStatus");
-			return new StatusDialogue(window, statusGauge, statusLabel);
+			return new StatusDialogue(m_pool.add(window, new StatusControls(statusGauge, statusLabel)));
 		} catch (NoSuchControlException e)
 		{
 			window.dispose();
@@ -61,23 +93,65 @@ public class StatusDialogueFactory
 		}
 	}
 	
-	public static class StatusDialogue implements IDisposable
+	/**
+	 * Disposes of the dialogues retained for reuse. Those disposed of afterwards are
+	 * not retained.
+	 */
+	@Override
+	public void dispose()
+	{
+		m_pool.drain();
+	}
+	
+	private static final class StatusControls
 	{
-		private final Window m_window;
 		private final ValueGuage m_statusGuage;
 		private final Label m_statusLabel;
 		
-		private StatusDialogue(Window window, ValueGuage statusGuage, Label statusLabel)
+		//Only accessed from the thread the dialogues are created on.
+		private String m_status = null;
+		
+		public StatusControls(ValueGuage statusGuage, Label statusLabel)
 		{
-			m_window = window;
 			m_statusGuage = statusGuage;
 			m_statusLabel = statusLabel;
 		}
+	}
+	
+	/**
+	 * A dialogue presenting the status of an operation. The status may be set
+	 * from any thread, but the dialogue's controls are only ever touched from
+	 * the thread that created it.
+	 * 
+	 * Statuses set from other threads are only published, and are applied to
+	 * the dialogue's controls on its next {@link #update()}. Statuses published
+	 * between updates are coalesced, such that only the latest is applied. The
+	 * owner of the dialogue must therefore invoke {@link #update()} once per
+	 * frame from the thread that created the dialogue, from which it must also
+	 * be disposed of.
+	 */
+	public static class StatusDialogue implements IDisposable
+	{
+		private final PooledWindow<StatusControls> m_window;
+		private final ValueGuage m_statusGuage;
+		private final Label m_statusLabel;
+		private final StatusControls m_controls;
+		
+		private final Thread m_uiThread = Thread.currentThread();
+		private final AtomicReference<PendingStatus> m_pendingStatus = new AtomicReference<>();
+		
+		private StatusDialogue(PooledWindow<StatusControls> window)
+		{
+			m_window = window;
+			m_controls = window.getState();
+			m_statusGuage = m_controls.m_statusGuage;
+			m_statusLabel = m_controls.m_statusLabel;
+		}
 		
 		@Override
 		public void dispose()
 		{
-			m_window.dispose();
+			m_window.release();
 		}
 		
 		public void setVisible(boolean isVisible)
@@ -95,10 +169,57 @@ public class StatusDialogueFactory
 			m_window.center();
 		}
 		
+		/**
+		 * Applies the latest status published from other threads, if any. Must
+		 * be invoked once per frame from the thread that created the dialogue,
+		 * otherwise statuses set from other threads are not displayed.
+		 */
+		public void update()
+		{
+			PendingStatus pending = m_pendingStatus.getAndSet(null);
+			
+			if(pending != null)
+				applyStatus(pending.m_status, pending.m_progress);
+		}
+		
 		public void setStatus(String status, float progress)
 		{
+			if(Thread.currentThread() != m_uiThread)
+				m_pendingStatus.set(new PendingStatus(status, progress));
+			else
+			{
+				m_pendingStatus.set(null);
+				applyStatus(status, progress);
+			}
+		}
+		
+		private void applyStatus(String status, float progress)
+		{
+			//The controls may have been handed to another dialogue by the pool. Since the pool is
+			//only used from the thread that created the dialogue, they can not be handed over here.
+			if(!m_window.isCurrent())
+				return;
+			
 			m_statusGuage.setValue(progress);
-			m_statusLabel.setText(status);
+			
+			//Avoid having the label measure and lay out its text again when it has not changed.
+			if(!status.equals(m_controls.m_status))
+			{
+				m_statusLabel.setText(status);
+				m_controls.m_status = status;
+			}
+		}
+		
+		private static final class PendingStatus
+		{
+			private final String m_status;
+			private final float m_progress;
+			
+			public PendingStatus(String status, float progress)
+			{
+				m_status = status;
+				m_progress = progress;
+			}
 		}
 	}
 }
@@ -19,6 +19,7 @@
 package io.github.jevaengine.builder.ui;
 
 import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.builder.ui.WindowPool.PooledWindow;
 import io.github.jevaengine.math.Vector2D;
 import io.github.jevaengine.ui.Button;
 import io.github.jevaengine.ui.Button.IButtonPressObserver;
@@ -34,37 +35,77 @@ import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.Observers;
 import java.net.URI;
 
-public final class TextInputQueryFactory
+public final class TextInputQueryFactory implements IDisposable
 {
 	private static final URI WINDOW_LAYOUT = URI.create("local:///ui/windows/textInput.jwl");
 	
 	private final WindowManager m_windowManager;
 	private final IWindowFactory m_windowFactory;
+	private final WindowPool<TextInputQueryBehaviourInjector> m_pool;
 	
 	public TextInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory)
+	{
+		this(windowManager, windowFactory, 0);
+	}
+	
+	/**
+	 * @param poolSize The number of disposed queries kept hidden in the window manager for reuse.
+	 */
+	public TextInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory, int poolSize)
+	{
+		this(windowManager, windowFactory, poolSize, new WindowCensus());
+	}
+	
+	/**
+	 * @param poolSize The number of disposed queries kept hidden in the window manager for reuse.
+	 * @param census The census through which the queries' windows are counted.
+	 */
+	public TextInputQueryFactory(WindowManager windowManager, IWindowFactory windowFactory, int poolSize, WindowCensus census)
 	{
 		m_windowManager = windowManager;
 		m_windowFactory = windowFactory;
+		m_pool = new WindowPool<>(poolSize, census);
 	}
 	
 	public TextInputQuery create(String query, String defaultValue) throws WindowConstructionException
 	{
 		Observers observers = new Observers();
+		PooledWindow<TextInputQueryBehaviourInjector> pooled = m_pool.poll();
+		
+		if(pooled != null)
+		{
+			TextInputQueryBehaviourInjector behaviour = pooled.getState();
+			behaviour.rebind(observers, query, defaultValue);
+			pooled.setVisible(true);
+		} else
+		{
+			TextInputQueryBehaviourInjector behaviour = new TextInputQueryBehaviourInjector(observers, query, defaultValue);
+			Window window = m_windowFactory.create(WINDOW_LAYOUT, behaviour);
+			m_windowManager.addWindow(window);
+			pooled = m_pool.add(window, behaviour);
+		}
 			
-		Window window = m_windowFactory.create(WINDOW_LAYOUT, new TextInputQueryBehaviourInjector(observers, query, defaultValue));
-		m_windowManager.addWindow(window);
-			
-		window.center();
-		return new TextInputQuery(observers, window);
+		pooled.center();
+		return new TextInputQuery(observers, pooled);
+	}
+	
+	/**
+	 * Disposes of the queries retained for reuse. Those disposed of afterwards are
+	 * not retained.
+	 */
+	@Override
+	public void dispose()
+	{
+		m_pool.drain();
 	}
 	
 	public static class TextInputQuery implements IDisposable
 	{
 		private final IObserverRegistry m_observers;
 		
-		private final Window m_window;
+		private final PooledWindow<TextInputQueryBehaviourInjector> m_window;
 		
-		private TextInputQuery(IObserverRegistry observers, Window window)
+		private TextInputQuery(IObserverRegistry observers, PooledWindow<TextInputQueryBehaviourInjector> window)
 		{
 			m_observers = observers;
 			m_window = window;
@@ -73,7 +114,7 @@ public final class TextInputQueryFactory
 		@Override
 		public void dispose()
 		{
-			m_window.dispose();
+			m_window.release();
 		}
 		
 		public void setVisible(boolean isVisible)
@@ -103,9 +144,12 @@ public final class TextInputQueryFactory
 	
 	private class TextInputQueryBehaviourInjector extends WindowBehaviourInjector
 	{
-		private final Observers m_observers;
+		private Observers m_observers;
 		private final String m_query;
 		private final String m_defaultValue;
+		
+		private Label m_lblQuery;
+		private TextArea m_txtValue;
 
 		public TextInputQueryBehaviourInjector(Observers observers, String query, String defaultValue)
 		{
@@ -114,12 +158,22 @@ public final class TextInputQueryFactory
 			m_defaultValue = defaultValue;
 		}
 		
+		public void rebind(Observers observers, String query, String defaultValue)
+		{
+			m_observers = observers;
+			m_lblQuery.setText(query);
+			m_txtValue.setText(defaultValue);
+		}
+		
 		@Override
 		protected void doInject() throws NoSuchControlException
 		{
 			final TextArea txtValue = getControl(TextArea.class, "txtValue");
 			
-			getControl(Label.class, "lblQuery").setText(m_query);
+			m_lblQuery = getControl(Label.class, "lblQuery");
+			m_txtValue = txtValue;
+			
+			m_lblQuery.setText(m_query);
 			txtValue.setText(m_defaultValue);
 			
 			getControl(Button.class, "btnOkay").getObservers().add(new IButtonPressObserver() {
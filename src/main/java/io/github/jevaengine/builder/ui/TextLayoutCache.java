@@ -0,0 +1,157 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of laid out runs of text, keyed by the text and
+ * the font it is laid out in, so that text which is displayed repeatedly is
+ * only measured once.
+ *
+ * @author Jeremy
+ */
+public final class TextLayoutCache
+{
+	private final LinkedHashMap<Key, TextLayout> m_layouts;
+	
+	public TextLayoutCache(final int capacity)
+	{
+		m_layouts = new LinkedHashMap<Key, TextLayout>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, TextLayout> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+	
+	public TextLayout getLayout(GlyphTable font, String text)
+	{
+		Key key = new Key(font, text);
+		
+		synchronized(m_layouts)
+		{
+			TextLayout layout = m_layouts.get(key);
+			
+			if(layout != null)
+				return layout;
+		}
+		
+		TextLayout layout = new TextLayout(font, text);
+		
+		synchronized(m_layouts)
+		{
+			m_layouts.put(key, layout);
+		}
+		
+		return layout;
+	}
+	
+	public void clear()
+	{
+		synchronized(m_layouts)
+		{
+			m_layouts.clear();
+		}
+	}
+	
+	private static final class Key
+	{
+		private final GlyphTable m_font;
+		private final String m_text;
+		
+		public Key(GlyphTable font, String text)
+		{
+			m_font = font;
+			m_text = text;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(m_font) * 31 + m_text.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Key))
+				return false;
+			
+			Key other = (Key)o;
+			
+			return m_font == other.m_font && m_text.equals(other.m_text);
+		}
+	}
+	
+	/**
+	 * The horizontal placement of each glyph in a single line of text.
+	 */
+	public static final class TextLayout
+	{
+		private final String m_text;
+		private final int[] m_offsets;
+		private final int m_width;
+		private final int m_height;
+		
+		private TextLayout(GlyphTable font, String text)
+		{
+			m_text = text;
+			m_offsets = new int[text.length()];
+			
+			int x = 0;
+			
+			for(int i = 0; i < text.length(); i++)
+			{
+				m_offsets[i] = x;
+				x += font.getWidth(text.charAt(i));
+			}
+			
+			m_width = x;
+			m_height = font.getLineHeight();
+		}
+		
+		public String getText()
+		{
+			return m_text;
+		}
+		
+		/**
+		 * @return The horizontal offset, from the start of the run, at which the character at index is drawn.
+		 */
+		public int getOffset(int index)
+		{
+			return m_offsets[index];
+		}
+		
+		public int getWidth()
+		{
+			return m_width;
+		}
+		
+		public int getHeight()
+		{
+			return m_height;
+		}
+	}
+}
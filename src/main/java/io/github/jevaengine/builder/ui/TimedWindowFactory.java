@@ -0,0 +1,153 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.ui.IWindowFactory;
+import io.github.jevaengine.ui.Window;
+import io.github.jevaengine.ui.WindowBehaviourInjector;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorates a window factory, timing the construction of each layout.
+ *
+ * @author Jeremy
+ */
+public final class TimedWindowFactory implements IWindowFactory
+{
+	private final IWindowFactory m_windowFactory;
+	
+	private final ConcurrentMap<URI, ConstructionTime> m_constructionTimes = new ConcurrentHashMap<>();
+	
+	public TimedWindowFactory(IWindowFactory windowFactory)
+	{
+		m_windowFactory = windowFactory;
+	}
+	
+	@Override
+	public Window create(URI name) throws WindowConstructionException
+	{
+		long start = System.nanoTime();
+		Window window = m_windowFactory.create(name);
+		
+		record(name, System.nanoTime() - start);
+		
+		return window;
+	}
+	
+	@Override
+	public Window create(URI name, WindowBehaviourInjector behaviourInject) throws WindowConstructionException
+	{
+		long start = System.nanoTime();
+		Window window = m_windowFactory.create(name, behaviourInject);
+		
+		record(name, System.nanoTime() - start);
+		
+		return window;
+	}
+	
+	private void record(URI name, long nanoseconds)
+	{
+		ConstructionTime time = m_constructionTimes.get(name);
+		
+		if(time == null)
+		{
+			ConstructionTime created = new ConstructionTime(name);
+			time = m_constructionTimes.putIfAbsent(name, created);
+			
+			if(time == null)
+				time = created;
+		}
+		
+		time.record(nanoseconds);
+	}
+	
+	/**
+	 * @return The construction times of every layout constructed so far, slowest mean first.
+	 */
+	public List<ConstructionTime> getConstructionTimes()
+	{
+		List<ConstructionTime> times = new ArrayList<>(m_constructionTimes.values());
+		final Map<ConstructionTime, Long> means = new HashMap<>();
+		
+		for(ConstructionTime t : times)
+			means.put(t, t.getMeanNanoseconds());
+		
+		Collections.sort(times, new Comparator<ConstructionTime>() {
+			@Override
+			public int compare(ConstructionTime a, ConstructionTime b)
+			{
+				return Long.compare(means.get(b), means.get(a));
+			}
+		});
+		
+		return times;
+	}
+	
+	public static final class ConstructionTime
+	{
+		private final URI m_layout;
+		
+		private final AtomicLong m_count = new AtomicLong();
+		private final AtomicLong m_totalNanoseconds = new AtomicLong();
+		private final AtomicLong m_lastNanoseconds = new AtomicLong();
+		
+		private ConstructionTime(URI layout)
+		{
+			m_layout = layout;
+		}
+		
+		private void record(long nanoseconds)
+		{
+			m_lastNanoseconds.set(nanoseconds);
+			m_totalNanoseconds.addAndGet(nanoseconds);
+			m_count.incrementAndGet();
+		}
+		
+		public URI getLayout()
+		{
+			return m_layout;
+		}
+		
+		public long getCount()
+		{
+			return m_count.get();
+		}
+		
+		public long getLastNanoseconds()
+		{
+			return m_lastNanoseconds.get();
+		}
+		
+		public long getMeanNanoseconds()
+		{
+			long count = m_count.get();
+			
+			return count == 0 ? 0 : m_totalNanoseconds.get() / count;
+		}
+	}
+}
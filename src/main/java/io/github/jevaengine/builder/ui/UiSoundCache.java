@@ -0,0 +1,233 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.IDisposable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plays short user interface sounds from memory. Each sound is read and
+ * decoded to PCM once, and is then loaded into a small number of pre-opened
+ * clips which are rotated through as the sound is played. A burst of plays
+ * therefore restarts the least recently started clip rather than opening
+ * another stream, decoder or output line.
+ *
+ * @author Jeremy
+ */
+public final class UiSoundCache implements IDisposable
+{
+	private static final int DEFAULT_CLIPS_PER_SOUND = 3;
+	
+	private final Logger m_logger = LoggerFactory.getLogger(UiSoundCache.class);
+	
+	private final IAssetStreamFactory m_assetFactory;
+	private final int m_clipsPerSound;
+	
+	private final Map<URI, Sound> m_sounds = new ConcurrentHashMap<>();
+	private volatile boolean m_isDisposed = false;
+	
+	public UiSoundCache(IAssetStreamFactory assetFactory)
+	{
+		this(assetFactory, DEFAULT_CLIPS_PER_SOUND);
+	}
+	
+	/**
+	 * @param clipsPerSound The number of output lines opened for each sound, which
+	 *                      is the number of times a sound can be heard overlapping itself.
+	 */
+	public UiSoundCache(IAssetStreamFactory assetFactory, int clipsPerSound)
+	{
+		m_assetFactory = assetFactory;
+		m_clipsPerSound = Math.max(1, clipsPerSound);
+	}
+	
+	@Override
+	public void dispose()
+	{
+		m_isDisposed = true;
+		
+		for(Sound s : m_sounds.values())
+			s.close();
+		
+		m_sounds.clear();
+	}
+	
+	/**
+	 * Decodes the sound and opens its clips, if that has not already been done.
+	 * Loading sounds ahead of time keeps their first play from having to do so.
+	 */
+	public void load(URI name) throws UiSoundConstructionException
+	{
+		getSound(name);
+	}
+	
+	/**
+	 * Plays the sound, loading it first if necessary. Sounds which fail to load
+	 * are logged once and are otherwise silent.
+	 */
+	public void play(URI name)
+	{
+		try
+		{
+			getSound(name).play();
+		} catch (UiSoundConstructionException e)
+		{
+			m_logger.warn("Unable to play user interface sound " + name, e);
+			m_sounds.put(name, new Sound(name, new Clip[0]));
+		}
+	}
+	
+	private Sound getSound(URI name) throws UiSoundConstructionException
+	{
+		Sound sound = m_sounds.get(name);
+		
+		if(sound != null)
+			return sound;
+		
+		synchronized(this)
+		{
+			sound = m_sounds.get(name);
+			
+			if(sound == null && !m_isDisposed)
+			{
+				sound = createSound(name);
+				m_sounds.put(name, sound);
+			}
+		}
+		
+		return sound == null ? new Sound(name, new Clip[0]) : sound;
+	}
+	
+	private Sound createSound(URI name) throws UiSoundConstructionException
+	{
+		AudioFormat format;
+		byte[] samples;
+		
+		try(AudioInputStream encoded = AudioSystem.getAudioInputStream(new BufferedInputStream(m_assetFactory.create(name))))
+		{
+			AudioFormat source = encoded.getFormat();
+			format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16, source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+			
+			try(AudioInputStream decoded = source.matches(format) ? encoded : AudioSystem.getAudioInputStream(format, encoded))
+			{
+				samples = readFully(decoded);
+			}
+		} catch (AssetStreamConstructionException | UnsupportedAudioFileException | IOException | IllegalArgumentException e)
+		{
+			throw new UiSoundConstructionException(name, e);
+		}
+		
+		Clip[] clips = new Clip[m_clipsPerSound];
+		
+		try
+		{
+			for(int i = 0; i < clips.length; i++)
+			{
+				clips[i] = AudioSystem.getClip();
+				clips[i].open(format, samples, 0, samples.length);
+			}
+		} catch (LineUnavailableException | IllegalArgumentException e)
+		{
+			for(Clip c : clips)
+			{
+				if(c != null)
+					c.close();
+			}
+			
+			throw new UiSoundConstructionException(name, e);
+		}
+		
+		return new Sound(name, clips);
+	}
+	
+	private static byte[] readFully(InputStream source) throws IOException
+	{
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] chunk = new byte[4096];
+		
+		for(int read; (read = source.read(chunk)) >= 0;)
+			buffer.write(chunk, 0, read);
+		
+		return buffer.toByteArray();
+	}
+	
+	private static final class Sound
+	{
+		private final URI m_name;
+		private final Clip[] m_clips;
+		private int m_next = 0;
+		
+		public Sound(URI name, Clip[] clips)
+		{
+			m_name = name;
+			m_clips = clips;
+		}
+		
+		public synchronized void play()
+		{
+			if(m_clips.length == 0)
+				return;
+			
+			Clip clip = m_clips[m_next];
+			m_next = (m_next + 1) % m_clips.length;
+			
+			clip.stop();
+			clip.setFramePosition(0);
+			clip.start();
+		}
+		
+		public synchronized void close()
+		{
+			for(Clip c : m_clips)
+				c.close();
+		}
+		
+		@Override
+		public String toString()
+		{
+			return m_name.toString();
+		}
+	}
+	
+	public static final class UiSoundConstructionException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private UiSoundConstructionException(URI name, Exception cause)
+		{
+			super("Unable to construct user interface sound " + name, cause);
+		}
+	}
+}
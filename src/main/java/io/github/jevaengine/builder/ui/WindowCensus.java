@@ -0,0 +1,78 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.ui.Window;
+
+/**
+ * Counts the windows that have been added to a window manager and not yet
+ * disposed of, and how many of those are visible. The window manager exposes
+ * no such count, so it is instead kept from the events that change it; windows
+ * are counted only if they are opened, shown, hidden and disposed of through
+ * the census.
+ *
+ * @author Jeremy
+ */
+public final class WindowCensus
+{
+	private int m_openWindows = 0;
+	private int m_visibleWindows = 0;
+	
+	/**
+	 * Counts a window that has just been added to its window manager.
+	 */
+	public synchronized void opened(Window window)
+	{
+		m_openWindows++;
+		
+		if(window.isVisible())
+			m_visibleWindows++;
+	}
+	
+	public synchronized void setVisible(Window window, boolean isVisible)
+	{
+		if(window.isVisible() != isVisible)
+			m_visibleWindows += isVisible ? 1 : -1;
+		
+		window.setVisible(isVisible);
+	}
+	
+	/**
+	 * Disposes of a window previously counted by {@link #opened(Window)}.
+	 */
+	public synchronized void dispose(Window window)
+	{
+		m_openWindows--;
+		
+		if(window.isVisible())
+			m_visibleWindows--;
+		
+		window.dispose();
+	}
+	
+	public synchronized int getOpenWindowCount()
+	{
+		return m_openWindows;
+	}
+	
+	public synchronized int getVisibleWindowCount()
+	{
+		return m_visibleWindows;
+	}
+}
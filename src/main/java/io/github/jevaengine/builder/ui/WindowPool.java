@@ -0,0 +1,203 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.math.Vector2D;
+import io.github.jevaengine.ui.Window;
+import java.util.ArrayDeque;
+
+/**
+ * A bounded free list of hidden windows, sharing a single layout, that have
+ * been released by their users and may be handed out again in place of
+ * constructing a new window.
+ * 
+ * Windows are only manipulated through a {@link PooledWindow} handle. Every
+ * time a window is handed out it is assigned a new generation, and handles of
+ * an earlier generation are ignored, such that a user that has released its
+ * window can not show, hide or release it once it has been reused.
+ * 
+ * Windows are opened, shown, hidden and disposed of through a
+ * {@link WindowCensus}, such that hidden pooled windows are counted as such.
+ *
+ * @param <T> The per-window state that must be rebound when a window is reused.
+ * 
+ * @author Jeremy
+ */
+final class WindowPool<T>
+{
+	private final int m_capacity;
+	private final WindowCensus m_census;
+	private final ArrayDeque<Entry<T>> m_free = new ArrayDeque<>();
+	private boolean m_isDrained = false;
+	
+	public WindowPool(int capacity, WindowCensus census)
+	{
+		m_capacity = capacity;
+		m_census = census;
+	}
+	
+	/**
+	 * Begins tracking a newly constructed window, such that it may be
+	 * returned to the pool once its user is done with it.
+	 */
+	public PooledWindow<T> add(Window window, T state)
+	{
+		m_census.opened(window);
+		
+		return new PooledWindow<>(this, new Entry<>(window, state), 0);
+	}
+	
+	/**
+	 * @return A handle to a released window, or null if there are none available.
+	 */
+	public synchronized PooledWindow<T> poll()
+	{
+		Entry<T> entry = m_free.poll();
+		
+		if(entry == null)
+			return null;
+		
+		entry.m_generation++;
+		return new PooledWindow<>(this, entry, entry.m_generation);
+	}
+	
+	/**
+	 * Disposes of all windows retained by the pool. Windows released after
+	 * the pool has been drained are disposed of rather than retained.
+	 */
+	public void drain()
+	{
+		ArrayDeque<Entry<T>> free;
+		
+		synchronized(this)
+		{
+			m_isDrained = true;
+			free = new ArrayDeque<>(m_free);
+			m_free.clear();
+		}
+		
+		for(Entry<T> entry : free)
+			m_census.dispose(entry.m_window);
+	}
+	
+	private void release(PooledWindow<T> handle)
+	{
+		Entry<T> entry = handle.m_entry;
+		boolean isRetained;
+		
+		synchronized(this)
+		{
+			if(!handle.isCurrent())
+				return;
+			
+			//Invalidate the released handle before the window can be handed out again.
+			entry.m_generation++;
+			isRetained = !m_isDrained && m_free.size() < m_capacity;
+			
+			if(isRetained)
+			{
+				m_census.setVisible(entry.m_window, false);
+				entry.m_window.setTopMost(false);
+				m_free.push(entry);
+			}
+		}
+		
+		if(!isRetained)
+			m_census.dispose(entry.m_window);
+	}
+	
+	private static final class Entry<T>
+	{
+		private final Window m_window;
+		private final T m_state;
+		private volatile int m_generation = 0;
+		
+		private Entry(Window window, T state)
+		{
+			m_window = window;
+			m_state = state;
+		}
+	}
+	
+	/**
+	 * A user's claim on a pooled window, valid until it is released.
+	 */
+	public static final class PooledWindow<T>
+	{
+		private final WindowPool<T> m_pool;
+		private final Entry<T> m_entry;
+		private final int m_generation;
+		
+		private PooledWindow(WindowPool<T> pool, Entry<T> entry, int generation)
+		{
+			m_pool = pool;
+			m_entry = entry;
+			m_generation = generation;
+		}
+		
+		public boolean isCurrent()
+		{
+			return m_entry.m_generation == m_generation;
+		}
+		
+		public Window getWindow()
+		{
+			return m_entry.m_window;
+		}
+		
+		public T getState()
+		{
+			return m_entry.m_state;
+		}
+		
+		public void setVisible(boolean isVisible)
+		{
+			if(isCurrent())
+				m_pool.m_census.setVisible(m_entry.m_window, isVisible);
+		}
+		
+		public void setLocation(Vector2D location)
+		{
+			if(isCurrent())
+				m_entry.m_window.setLocation(location);
+		}
+		
+		public void center()
+		{
+			if(isCurrent())
+				m_entry.m_window.center();
+		}
+		
+		public void setTopMost(boolean isTopMost)
+		{
+			if(isCurrent())
+				m_entry.m_window.setTopMost(isTopMost);
+		}
+		
+		/**
+		 * Hides and returns the window to the pool, or disposes of it if the
+		 * pool is full or has been drained. Has no effect if the handle has
+		 * already been released.
+		 */
+		public void release()
+		{
+			m_pool.release(this);
+		}
+	}
+}
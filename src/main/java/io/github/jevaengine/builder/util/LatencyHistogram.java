@@ -0,0 +1,92 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations with power-of-two buckets. Recording a duration
+ * is a single atomic increment, so the histogram can be updated on hot paths
+ * from many threads; percentiles are accurate to within a factor of two.
+ *
+ * @author Jeremy
+ */
+public final class LatencyHistogram
+{
+	private static final int BUCKETS = 64;
+	
+	private final AtomicLongArray m_buckets = new AtomicLongArray(BUCKETS);
+	
+	/**
+	 * @param nanoseconds The duration to record, in nanoseconds.
+	 */
+	public void record(long nanoseconds)
+	{
+		int bucket = nanoseconds <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanoseconds);
+		m_buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+	}
+	
+	public long getCount()
+	{
+		long count = 0;
+		
+		for(int i = 0; i < BUCKETS; i++)
+			count += m_buckets.get(i);
+		
+		return count;
+	}
+	
+	/**
+	 * @param percentile The percentile, from zero to one.
+	 * @return The upper bound, in nanoseconds, of the bucket containing the percentile, or zero if nothing has been recorded.
+	 */
+	public long getPercentile(double percentile)
+	{
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			counts[i] = m_buckets.get(i);
+			total += counts[i];
+		}
+		
+		if(total == 0)
+			return 0;
+		
+		long rank = (long)Math.ceil(Math.max(0, Math.min(1, percentile)) * total);
+		long seen = 0;
+		
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts[i];
+			
+			if(seen >= rank && counts[i] > 0)
+				return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+		}
+		
+		return Long.MAX_VALUE;
+	}
+	
+	public void reset()
+	{
+		for(int i = 0; i < BUCKETS; i++)
+			m_buckets.set(i, 0);
+	}
+}
@@ -0,0 +1,86 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that is cheap to increment from many threads at once. Increments
+ * are spread across several cells, selected by the incrementing thread, so
+ * that threads rarely contend over the same cache line; the cells are only
+ * summed when the counter is read.
+ *
+ * @author Jeremy
+ */
+public final class StripedCounter
+{
+	//Cells are spaced a cache line apart to avoid false sharing between them.
+	private static final int CELL_SPACING = 8;
+	
+	private final AtomicLongArray m_cells;
+	private final int m_mask;
+	
+	public StripedCounter()
+	{
+		int stripes = 1;
+		
+		while(stripes < Runtime.getRuntime().availableProcessors() * 2)
+			stripes <<= 1;
+		
+		m_mask = stripes - 1;
+		m_cells = new AtomicLongArray(stripes * CELL_SPACING);
+	}
+	
+	private int cellOf(Thread thread)
+	{
+		long id = thread.getId();
+		int hash = (int)(id ^ (id >>> 32)) * 0x9E3779B9;
+		
+		return ((hash ^ (hash >>> 16)) & m_mask) * CELL_SPACING;
+	}
+	
+	public void add(long delta)
+	{
+		m_cells.addAndGet(cellOf(Thread.currentThread()), delta);
+	}
+	
+	public void increment()
+	{
+		add(1);
+	}
+	
+	public long sum()
+	{
+		long sum = 0;
+		
+		for(int i = 0; i < m_cells.length(); i += CELL_SPACING)
+			sum += m_cells.get(i);
+		
+		return sum;
+	}
+	
+	/**
+	 * Resets the counter to zero. Increments made concurrently with a reset may be lost.
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < m_cells.length(); i += CELL_SPACING)
+			m_cells.set(i, 0);
+	}
+}
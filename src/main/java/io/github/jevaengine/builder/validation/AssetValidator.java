@@ -0,0 +1,511 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.validation;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import io.github.jevaengine.builder.config.BinaryDocument;
+import io.github.jevaengine.builder.task.IProgressMonitor;
+import io.github.jevaengine.builder.task.ISubtask;
+import io.github.jevaengine.builder.task.TaskRunner;
+import io.github.jevaengine.builder.task.TaskRunner.RunningTask;
+import io.github.jevaengine.builder.task.TaskStage;
+import io.github.jevaengine.builder.ui.StatusDialogueFactory.StatusDialogue;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Validates the consistency of a project's assets without loading them into
+ * the engine: that the references of styles (.juis) resolve, that sprites
+ * (.jsf) and fonts (.juif) name an existing texture and that their regions
+ * lie within it, and that the style of each window layout (.jwl) loads.
+ * 
+ * Assets are validated in parallel through a {@link TaskRunner}, and findings
+ * are reported as they are made. Textures are only read as far as their
+ * dimensions, and each texture and style is examined once no matter how many
+ * assets refer to it, so no display is required and large projects remain cheap.
+ *
+ * @author Jeremy
+ */
+public final class AssetValidator
+{
+	private static final int BATCH_SIZE = 64;
+	
+	private static final String STYLE_EXTENSION = ".juis";
+	private static final String SPRITE_EXTENSION = ".jsf";
+	private static final String FONT_EXTENSION = ".juif";
+	private static final String WINDOW_EXTENSION = ".jwl";
+	
+	private static final String[] REFERENCE_EXTENSIONS = {".jsf", ".juif", ".juis", ".png", ".wav"};
+	
+	private final IAssetStreamFactory m_assetFactory;
+	
+	private final ConcurrentMap<URI, TextureBounds> m_textures = new ConcurrentHashMap<>();
+	private final ConcurrentMap<URI, String> m_styles = new ConcurrentHashMap<>();
+	
+	public AssetValidator(IAssetStreamFactory assetFactory)
+	{
+		m_assetFactory = assetFactory;
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: AssetValidator <asset root> [report file]");
+			System.exit(1);
+		}
+		
+		System.setProperty("java.awt.headless", "true");
+		
+		File assetRoot = new File(args[0]);
+		BuilderAssetStreamFactory assetFactory = new BuilderAssetStreamFactory(assetRoot.toURI(), false, BuilderAssetStreamFactory.DEFAULT_RESOURCE_CACHE_SIZE, false);
+		TaskRunner taskRunner = new TaskRunner();
+		
+		try(Writer out = new OutputStreamWriter(args.length > 1 ? new FileOutputStream(args[1]) : System.out, StandardCharsets.UTF_8))
+		{
+			ValidationReportWriter report = new ValidationReportWriter(out);
+			List<URI> assets = findAssets(assetRoot);
+			
+			new AssetValidator(assetFactory).validate(taskRunner, assets, report, null).await();
+			
+			System.err.println("Validated " + assets.size() + " assets, " + report.getFindingCount() + " findings.");
+			
+			if(report.getFindingCount() > 0)
+				System.exit(2);
+		} catch (ExecutionException e)
+		{
+			throw new IOException("Validation failed.", e.getCause());
+		} finally
+		{
+			taskRunner.dispose();
+			assetFactory.dispose();
+		}
+	}
+	
+	/**
+	 * @return The relative URIs of every asset under the root that can be validated. Compressed
+	 *         assets are named by their uncompressed path, which is how they are referenced.
+	 */
+	public static List<URI> findAssets(File assetRoot) throws IOException
+	{
+		final Path root = assetRoot.toPath();
+		final Set<String> paths = new TreeSet<>();
+		
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+			{
+				String path = BuilderAssetStreamFactory.getUncompressedPath(root.relativize(file).toString().replace(File.separatorChar, '/'));
+				
+				if(isValidated(path))
+					paths.add(path);
+				
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		
+		List<URI> assets = new ArrayList<>();
+		
+		for(String path : paths)
+		{
+			try
+			{
+				assets.add(new URI(null, null, path, null));
+			} catch (URISyntaxException e)
+			{
+				throw new IOException(e);
+			}
+		}
+		
+		return assets;
+	}
+	
+	private static boolean isValidated(String path)
+	{
+		return path.endsWith(STYLE_EXTENSION) || path.endsWith(SPRITE_EXTENSION) || path.endsWith(FONT_EXTENSION) || path.endsWith(WINDOW_EXTENSION);
+	}
+	
+	/**
+	 * @param statusDialogue The dialogue to present the validation's progress in, or null.
+	 */
+	public RunningTask validate(TaskRunner taskRunner, List<URI> assets, IValidationObserver observer, StatusDialogue statusDialogue)
+	{
+		return taskRunner.run("Validating assets", Collections.singletonList(createStage(assets, observer)), statusDialogue);
+	}
+	
+	/**
+	 * @return A stage validating the assets in batches, which may be run alongside other stages of a task.
+	 */
+	public TaskStage createStage(List<URI> assets, IValidationObserver observer)
+	{
+		List<ValidationBatch> batches = new ArrayList<>();
+		
+		for(int i = 0; i < assets.size(); i += BATCH_SIZE)
+			batches.add(new ValidationBatch(assets.subList(i, Math.min(assets.size(), i + BATCH_SIZE)), observer));
+		
+		return new TaskStage("Validating " + assets.size() + " assets", 1, batches);
+	}
+	
+	public void validate(URI asset, IValidationObserver observer)
+	{
+		String path = asset.getPath() == null ? null : BuilderAssetStreamFactory.getUncompressedPath(asset.getPath());
+		
+		if(path == null || !isValidated(path))
+			return;
+		
+		Object document;
+		
+		try
+		{
+			document = loadDocument(asset);
+		} catch (AssetStreamConstructionException | IOException | IllegalArgumentException e)
+		{
+			observer.found(asset, "Unable to load: " + describe(e));
+			return;
+		}
+		
+		if(path.endsWith(STYLE_EXTENSION))
+			validateReferences(asset, document, observer);
+		else if(path.endsWith(SPRITE_EXTENSION))
+			validateRegions(asset, document, "animations", "frames", observer);
+		else if(path.endsWith(FONT_EXTENSION))
+			validateRegions(asset, document, "glyphs", null, observer);
+		else if(path.endsWith(WINDOW_EXTENSION))
+			validateStyle(asset, document, observer);
+	}
+	
+	private Object loadDocument(URI name) throws AssetStreamConstructionException, IOException
+	{
+		try(InputStream is = m_assetFactory.create(name))
+		{
+			//Compressed assets named explicitly are read as they are stored.
+			if(name.getPath().endsWith(BuilderAssetStreamFactory.COMPRESSED_EXTENSION))
+				return BinaryDocument.load(new GZIPInputStream(is));
+			
+			return BinaryDocument.load(is);
+		}
+	}
+	
+	private boolean exists(URI name)
+	{
+		if(m_assetFactory instanceof BuilderAssetStreamFactory)
+			return ((BuilderAssetStreamFactory)m_assetFactory).exists(name);
+		
+		try
+		{
+			m_assetFactory.create(name).close();
+			return true;
+		} catch (AssetStreamConstructionException | IOException e)
+		{
+			return false;
+		}
+	}
+	
+	private void validateReferences(URI asset, Object value, IValidationObserver observer)
+	{
+		if(value instanceof Map)
+		{
+			for(Object member : ((Map<?, ?>)value).values())
+				validateReferences(asset, member, observer);
+		} else if(value instanceof List)
+		{
+			for(Object element : (List<?>)value)
+				validateReferences(asset, element, observer);
+		} else if(value instanceof String)
+		{
+			String reference = (String)value;
+			String uncompressedReference = BuilderAssetStreamFactory.getUncompressedPath(reference);
+			
+			for(String extension : REFERENCE_EXTENSIONS)
+			{
+				if(uncompressedReference.endsWith(extension))
+				{
+					URI name = resolve(asset, reference);
+					
+					if(name == null || !exists(name))
+						observer.found(asset, "Reference does not resolve: " + reference);
+					
+					break;
+				}
+			}
+		}
+	}
+	
+	private void validateStyle(URI asset, Object window, IValidationObserver observer)
+	{
+		Object style = window instanceof Map ? ((Map<?, ?>)window).get("style") : null;
+		
+		if(!(style instanceof String))
+		{
+			observer.found(asset, "Window layout does not name a style.");
+			return;
+		}
+		
+		URI name = resolve(asset, (String)style);
+		
+		if(name == null)
+		{
+			observer.found(asset, "Style reference is not a valid URI: " + style);
+			return;
+		}
+		
+		String error = m_styles.get(name);
+		
+		if(error == null)
+		{
+			try
+			{
+				loadDocument(name);
+				error = "";
+			} catch (AssetStreamConstructionException | IOException | IllegalArgumentException e)
+			{
+				error = describe(e);
+			}
+			
+			m_styles.putIfAbsent(name, error);
+		}
+		
+		if(!error.isEmpty())
+			observer.found(asset, "Style " + style + " does not load: " + error);
+	}
+	
+	/**
+	 * Validates the regions of a sprite or font against its texture.
+	 * 
+	 * @param groups The member listing the groups of regions, being the sprite's animations or the font's glyphs.
+	 * @param frames The member of each group listing its frames, or null if the groups themselves hold the regions.
+	 */
+	private void validateRegions(URI asset, Object document, String groups, String frames, IValidationObserver observer)
+	{
+		Object texture = document instanceof Map ? ((Map<?, ?>)document).get("texture") : null;
+		
+		if(!(texture instanceof String))
+		{
+			observer.found(asset, "Does not name a texture.");
+			return;
+		}
+		
+		URI textureName = resolve(asset, (String)texture);
+		TextureBounds bounds = textureName == null ? null : getTextureBounds(textureName);
+		
+		if(bounds == null || bounds.m_error != null)
+		{
+			observer.found(asset, "Texture " + texture + " does not load: " + (bounds == null ? "not a valid URI" : bounds.m_error));
+			return;
+		}
+		
+		List<Object> regions = new ArrayList<>();
+		
+		for(Object group : asList(((Map<?, ?>)document).get(groups)))
+		{
+			if(frames == null)
+				regions.add(group);
+			else if(group instanceof Map)
+				regions.addAll(asList(((Map<?, ?>)group).get(frames)));
+		}
+		
+		for(Object owner : regions)
+		{
+			Object region = owner instanceof Map ? ((Map<?, ?>)owner).get("region") : null;
+			
+			long x = getLong(region, "x");
+			long y = getLong(region, "y");
+			long width = getLong(region, "width");
+			long height = getLong(region, "height");
+			
+			if(x < 0 || y < 0 || width < 0 || height < 0)
+				observer.found(asset, "Region " + describeOwner(owner) + "is missing or negative.");
+			else if(x + width > bounds.m_width || y + height > bounds.m_height)
+				observer.found(asset, "Region " + describeOwner(owner) + "(" + x + ", " + y + ", " + width + ", " + height + ") exceeds its " + bounds.m_width + "x" + bounds.m_height + " texture " + texture);
+		}
+	}
+	
+	private TextureBounds getTextureBounds(URI name)
+	{
+		TextureBounds bounds = m_textures.get(name);
+		
+		if(bounds != null)
+			return bounds;
+		
+		bounds = readTextureBounds(name);
+		TextureBounds existing = m_textures.putIfAbsent(name, bounds);
+		
+		return existing == null ? bounds : existing;
+	}
+	
+	private TextureBounds readTextureBounds(URI name)
+	{
+		try(InputStream is = m_assetFactory.create(name);
+			ImageInputStream image = ImageIO.createImageInputStream(is))
+		{
+			Iterator<ImageReader> readers = image == null ? null : ImageIO.getImageReaders(image);
+			
+			if(readers == null || !readers.hasNext())
+				return new TextureBounds("not in a supported image format");
+			
+			ImageReader reader = readers.next();
+			
+			try
+			{
+				//Only the header is read to determine the dimensions; the image is never decoded.
+				reader.setInput(image, true, true);
+				return new TextureBounds(reader.getWidth(0), reader.getHeight(0));
+			} finally
+			{
+				reader.dispose();
+			}
+		} catch (AssetStreamConstructionException | IOException e)
+		{
+			return new TextureBounds(describe(e));
+		}
+	}
+	
+	private static URI resolve(URI base, String reference)
+	{
+		try
+		{
+			return base.resolve(new URI(reference));
+		} catch (URISyntaxException e)
+		{
+			return null;
+		}
+	}
+	
+	private static List<?> asList(Object value)
+	{
+		return value instanceof List ? (List<?>)value : Collections.emptyList();
+	}
+	
+	private static long getLong(Object object, String name)
+	{
+		Object value = object instanceof Map ? ((Map<?, ?>)object).get(name) : null;
+		
+		return value instanceof Number ? ((Number)value).longValue() : -1;
+	}
+	
+	private static String describeOwner(Object owner)
+	{
+		Object c = owner instanceof Map ? ((Map<?, ?>)owner).get("char") : null;
+		
+		if(c instanceof Number)
+			return "of glyph " + ((Number)c).longValue() + " ";
+		
+		return "";
+	}
+	
+	private static String describe(Exception e)
+	{
+		Throwable cause = e;
+		
+		while(cause.getCause() != null && cause.getMessage() == null)
+			cause = cause.getCause();
+		
+		return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+	}
+	
+	public interface IValidationObserver
+	{
+		/**
+		 * Invoked, possibly concurrently from several threads, for each problem found.
+		 * 
+		 * @param asset The asset the problem was found in.
+		 */
+		void found(URI asset, String finding);
+	}
+	
+	private static final class TextureBounds
+	{
+		private final int m_width;
+		private final int m_height;
+		private final String m_error;
+		
+		public TextureBounds(int width, int height)
+		{
+			m_width = width;
+			m_height = height;
+			m_error = null;
+		}
+		
+		public TextureBounds(String error)
+		{
+			m_width = 0;
+			m_height = 0;
+			m_error = error;
+		}
+	}
+	
+	private final class ValidationBatch implements ISubtask
+	{
+		private final List<URI> m_assets;
+		private final IValidationObserver m_observer;
+		
+		public ValidationBatch(List<URI> assets, IValidationObserver observer)
+		{
+			m_assets = assets;
+			m_observer = observer;
+		}
+		
+		@Override
+		public long getWork()
+		{
+			return m_assets.size();
+		}
+		
+		@Override
+		public void run(IProgressMonitor monitor)
+		{
+			for(URI asset : m_assets)
+			{
+				if(monitor.isCancelled())
+					return;
+				
+				validate(asset, m_observer);
+				monitor.worked(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.validation;
+
+import io.github.jevaengine.builder.validation.AssetValidator.IValidationObserver;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes validation findings as they are made, one per line, such that the
+ * report of a long validation can be followed while it runs.
+ *
+ * @author Jeremy
+ */
+public final class ValidationReportWriter implements IValidationObserver
+{
+	private final Logger m_logger = LoggerFactory.getLogger(ValidationReportWriter.class);
+	
+	private final Writer m_writer;
+	private int m_findingCount = 0;
+	
+	public ValidationReportWriter(Writer writer)
+	{
+		m_writer = writer;
+	}
+	
+	@Override
+	public synchronized void found(URI asset, String finding)
+	{
+		m_findingCount++;
+		
+		try
+		{
+			m_writer.write(asset + ": " + finding + System.lineSeparator());
+			m_writer.flush();
+		} catch (IOException e)
+		{
+			m_logger.error("Unable to write validation finding for " + asset + ": " + finding, e);
+		}
+	}
+	
+	public synchronized int getFindingCount()
+	{
+		return m_findingCount;
+	}
+}
@@ -0,0 +1,156 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AssetPackWriterTest
+{
+	private File m_root;
+	private BuilderAssetStreamFactory m_factory;
+	
+	@Before
+	public void createRoot() throws IOException
+	{
+		m_root = Files.createTempDirectory("assets").toFile();
+		m_factory = new BuilderAssetStreamFactory(m_root.toURI());
+	}
+	
+	@After
+	public void deleteRoot()
+	{
+		m_factory.dispose();
+		delete(m_root);
+	}
+	
+	@Test
+	public void compressedAssetsArePackedDecompressedUnderTheirUncompressedPath() throws Exception
+	{
+		write(new File(m_root, "ui/style.juis"), "{}", false);
+		write(new File(m_root, "font/pro.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION), "{\"glyphs\": []}", true);
+		
+		//The uncompressed asset is preferred, as it is when resolved.
+		write(new File(m_root, "font/both.juif"), "plain", false);
+		write(new File(m_root, "font/both.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION), "compressed", true);
+		
+		File pack = new File(m_root.getParentFile(), m_root.getName() + ".pack");
+		
+		try
+		{
+			assertEquals(3, new AssetPackWriter(m_root, m_factory).write(pack));
+			
+			PackAssetStreamFactory packFactory = new PackAssetStreamFactory(pack);
+			
+			assertEquals("{}", read(packFactory, "ui/style.juis"));
+			assertEquals("{\"glyphs\": []}", read(packFactory, "font/pro.juif"));
+			assertEquals("plain", read(packFactory, "font/both.juif"));
+			assertFalse(packFactory.contains(URI.create("font/pro.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION)));
+			assertTrue(packFactory.contains(URI.create("font/pro.juif")));
+		} finally
+		{
+			pack.delete();
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void packEntryLongerThanAnIntIsRejected() throws IOException
+	{
+		File pack = new File(m_root, "hostile.pack");
+		
+		try(DataOutputStream os = new DataOutputStream(new FileOutputStream(pack)))
+		{
+			os.writeInt(AssetPack.MAGIC);
+			os.writeInt(AssetPack.VERSION);
+			os.writeInt(1);
+			os.writeUTF("ui/style.juis");
+			os.writeLong(0);
+			
+			//Narrows to a length of 4, which the data region would satisfy.
+			os.writeLong(0x100000004L);
+			os.write(new byte[4]);
+		}
+		
+		new PackAssetStreamFactory(pack);
+	}
+	
+	@Test(expected = IOException.class)
+	public void packEntryOverflowingTheDataRegionIsRejected() throws IOException
+	{
+		File pack = new File(m_root, "hostile.pack");
+		
+		try(DataOutputStream os = new DataOutputStream(new FileOutputStream(pack)))
+		{
+			os.writeInt(AssetPack.MAGIC);
+			os.writeInt(AssetPack.VERSION);
+			os.writeInt(1);
+			os.writeUTF("ui/style.juis");
+			os.writeLong(2);
+			os.writeLong(Integer.MAX_VALUE);
+			os.write(new byte[4]);
+		}
+		
+		new PackAssetStreamFactory(pack);
+	}
+	
+	private static String read(PackAssetStreamFactory factory, String path) throws Exception
+	{
+		try(InputStream is = factory.create(URI.create(path)))
+		{
+			return new String(ResourceCache.readFully(is), StandardCharsets.UTF_8);
+		}
+	}
+	
+	private static void write(File file, String contents, boolean isCompressed) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		
+		try(OutputStream os = isCompressed ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file))
+		{
+			os.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+	
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		
+		if(children != null)
+		{
+			for(File child : children)
+				delete(child);
+		}
+		
+		file.delete();
+	}
+}
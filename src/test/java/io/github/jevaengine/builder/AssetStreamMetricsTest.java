@@ -0,0 +1,79 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.net.URI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AssetStreamMetricsTest
+{
+	private static final int DISTINCT_ASSETS = 10000;
+	
+	@Test
+	public void assetsThatBecomeHotLateAreRanked()
+	{
+		AssetStreamMetrics metrics = new AssetStreamMetrics(null);
+		
+		for(int i = 0; i < DISTINCT_ASSETS; i++)
+			metrics.recordAsset(URI.create("cold/" + i + ".png"));
+		
+		for(int i = 0; i < 50; i++)
+			metrics.recordAsset(URI.create("late/hot.png"));
+		
+		String[] hottest = metrics.getHottestAssets();
+		
+		assertTrue(hottest[0].endsWith(" late/hot.png"));
+		assertTrue(metrics.getTrackedAssetCount() < DISTINCT_ASSETS);
+		assertTrue(metrics.getEvictedAssetCount() > 0);
+	}
+	
+	@Test
+	public void countsAreExactUntilAssetsAreEvicted()
+	{
+		AssetStreamMetrics metrics = new AssetStreamMetrics(null);
+		
+		for(int i = 0; i < 3; i++)
+			metrics.recordAsset(URI.create("a.png"));
+		
+		metrics.recordAsset(URI.create("b.png"));
+		
+		String[] hottest = metrics.getHottestAssets();
+		
+		assertEquals(2, hottest.length);
+		assertEquals("3 a.png", hottest[0]);
+		assertEquals("1 b.png", hottest[1]);
+		assertEquals(0, metrics.getEvictedAssetCount());
+	}
+	
+	@Test
+	public void hotAssetsAreNotEvictedByColdOnes()
+	{
+		AssetStreamMetrics metrics = new AssetStreamMetrics(null);
+		
+		for(int i = 0; i < 100; i++)
+			metrics.recordAsset(URI.create("early/hot.png"));
+		
+		for(int i = 0; i < DISTINCT_ASSETS; i++)
+			metrics.recordAsset(URI.create("cold/" + i + ".png"));
+		
+		assertEquals("100 early/hot.png", metrics.getHottestAssets()[0]);
+	}
+}
@@ -0,0 +1,266 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuilderAssetStreamFactoryTest
+{
+	private static final long SETTLE_MILLISECONDS = 10000;
+	
+	@Rule
+	public final TemporaryFolder m_folder = new TemporaryFolder();
+	
+	private File m_root;
+	private BuilderAssetStreamFactory m_factory;
+	
+	@Before
+	public void createFactory() throws IOException
+	{
+		m_root = m_folder.newFolder("assets");
+		m_factory = new BuilderAssetStreamFactory(m_root.toURI());
+	}
+	
+	@After
+	public void disposeFactory()
+	{
+		m_factory.dispose();
+	}
+	
+	@Test(timeout = 30000)
+	public void cachedMissesHealOnceCreated() throws Exception
+	{
+		URI asset = URI.create("sprites/hero.jsf");
+		
+		assertFalse(m_factory.exists(asset));
+		write(new File(m_root, "sprites/hero.jsf"), "{}");
+		
+		awaitExists(m_factory, asset, true);
+		assertEquals("{}", read(m_factory, asset));
+	}
+	
+	@Test
+	public void unwatchedRootsAreProbed() throws Exception
+	{
+		BuilderAssetStreamFactory factory = new BuilderAssetStreamFactory(m_root.toURI(), false, BuilderAssetStreamFactory.DEFAULT_RESOURCE_CACHE_SIZE, false);
+		
+		try
+		{
+			URI asset = URI.create("sprites/hero.jsf");
+			
+			assertFalse(factory.exists(asset));
+			write(new File(m_root, "sprites/hero.jsf"), "{}");
+			
+			assertTrue(factory.exists(asset));
+			assertTrue(new File(m_root, "sprites/hero.jsf").delete());
+			assertFalse(factory.exists(asset));
+		} finally
+		{
+			factory.dispose();
+		}
+	}
+	
+	@Test(timeout = 60000)
+	public void resolutionsRacingChangesAreNotKept() throws Exception
+	{
+		final URI asset = URI.create("race.txt");
+		final AtomicBoolean isRunning = new AtomicBoolean(true);
+		File file = new File(m_root, "race.txt");
+		
+		Thread[] resolvers = new Thread[4];
+		
+		for(int i = 0; i < resolvers.length; i++)
+		{
+			resolvers[i] = new Thread(new Runnable() {
+				@Override
+				public void run()
+				{
+					while(isRunning.get())
+						m_factory.exists(asset);
+				}
+			});
+			
+			resolvers[i].start();
+		}
+		
+		try
+		{
+			for(int i = 0; i < 20; i++)
+			{
+				write(file, "contents");
+				awaitExists(m_factory, asset, true);
+				
+				assertTrue(file.delete());
+				awaitExists(m_factory, asset, false);
+			}
+		} finally
+		{
+			isRunning.set(false);
+			
+			for(Thread resolver : resolvers)
+				resolver.join();
+		}
+	}
+	
+	@Test(timeout = 30000)
+	public void lastRootsProvideWhatEarlierRootsDoNot() throws Exception
+	{
+		File fallback = m_folder.newFolder("fallback");
+		BuilderAssetStreamFactory factory = new BuilderAssetStreamFactory(Arrays.asList(m_root.toURI(), fallback.toURI()));
+		
+		try
+		{
+			URI asset = URI.create("sprites/hero.jsf");
+			
+			assertFalse(factory.exists(asset));
+			write(new File(fallback, "sprites/hero.jsf"), "fallback");
+			awaitExists(factory, asset, true);
+			assertEquals("fallback", read(factory, asset));
+			
+			write(new File(m_root, "sprites/hero.jsf"), "root");
+			
+			long deadline = System.currentTimeMillis() + SETTLE_MILLISECONDS;
+			
+			while(!read(factory, asset).equals("root"))
+			{
+				if(System.currentTimeMillis() > deadline)
+					fail("The first root did not take precedence.");
+				
+				Thread.sleep(5);
+			}
+		} finally
+		{
+			factory.dispose();
+		}
+	}
+	
+	@Test(timeout = 30000)
+	public void cachedMissesShareTheirException() throws Exception
+	{
+		URI asset = URI.create("sprites/missing.jsf");
+		long deadline = System.currentTimeMillis() + SETTLE_MILLISECONDS;
+		
+		//Misses are only cached once the root is watched.
+		while(createFailure(asset) != createFailure(asset))
+		{
+			if(System.currentTimeMillis() > deadline)
+				fail("Repeated misses did not share their exception.");
+			
+			Thread.sleep(5);
+		}
+		
+		write(new File(m_root, "sprites/missing.jsf"), "{}");
+		awaitExists(m_factory, asset, true);
+		assertEquals("{}", read(m_factory, asset));
+	}
+	
+	@Test(timeout = 30000)
+	public void compressedSiblingsAreDecompressed() throws Exception
+	{
+		File compressed = new File(m_root, "font/pro.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION);
+		compressed.getParentFile().mkdirs();
+		
+		try(OutputStream os = new GZIPOutputStream(new FileOutputStream(compressed)))
+		{
+			os.write("{\"glyphs\": []}".getBytes(StandardCharsets.UTF_8));
+		}
+		
+		URI asset = URI.create("font/pro.juif");
+		
+		awaitExists(m_factory, asset, true);
+		assertEquals("{\"glyphs\": []}", read(m_factory, asset));
+	}
+	
+	@Test
+	public void compressedLocalSiblingsAreDecompressed() throws Exception
+	{
+		URI asset = URI.create("local:///compressed/pro.juif");
+		
+		assertTrue(m_factory.exists(asset));
+		assertEquals("{\"glyphs\": []}", read(m_factory, asset));
+		assertFalse(m_factory.exists(URI.create("local:///compressed/missing.juif")));
+	}
+	
+	private AssetStreamConstructionException createFailure(URI asset)
+	{
+		try
+		{
+			m_factory.create(asset).close();
+		} catch (AssetStreamConstructionException e)
+		{
+			return e;
+		} catch (IOException e)
+		{
+			throw new AssertionError(e);
+		}
+		
+		fail(asset + " was created.");
+		return null;
+	}
+	
+	private static void awaitExists(BuilderAssetStreamFactory factory, URI asset, boolean exists) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + SETTLE_MILLISECONDS;
+		
+		while(factory.exists(asset) != exists)
+		{
+			if(System.currentTimeMillis() > deadline)
+				fail(asset + " did not become " + (exists ? "present" : "absent"));
+			
+			Thread.sleep(5);
+		}
+	}
+	
+	private static String read(BuilderAssetStreamFactory factory, URI asset) throws Exception
+	{
+		try(InputStream is = factory.create(asset))
+		{
+			return new String(ResourceCache.readFully(is), StandardCharsets.UTF_8);
+		}
+	}
+	
+	private static void write(File file, String contents) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		
+		try(OutputStream os = new FileOutputStream(file))
+		{
+			os.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import io.github.jevaengine.IAssetStreamFactory;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DecodedTextureCacheTest
+{
+	private static final URI TEXTURE = URI.create("texture.png");
+	private static final URI OTHER_TEXTURE = URI.create("other.png");
+	
+	private final Map<URI, byte[]> m_assets = new ConcurrentHashMap<>();
+	private File m_directory;
+	
+	private final IAssetStreamFactory m_assetFactory = new IAssetStreamFactory() {
+		@Override
+		public InputStream create(URI name) throws AssetStreamConstructionException
+		{
+			byte[] contents = m_assets.get(name);
+			
+			if(contents == null)
+				throw new AssetStreamConstructionException(name, new IOException("No such asset."));
+			
+			return new ByteArrayInputStream(contents);
+		}
+	};
+	
+	@Before
+	public void createDirectory() throws IOException
+	{
+		m_directory = Files.createTempDirectory("textures").toFile();
+	}
+	
+	@After
+	public void deleteDirectory()
+	{
+		for(File entry : m_directory.listFiles())
+			entry.delete();
+		
+		m_directory.delete();
+	}
+	
+	@Test
+	public void decodedTexturesAreReused() throws Exception
+	{
+		m_assets.put(TEXTURE, encode(8, 4, 0xFF336699));
+		
+		DecodedTextureCache cache = new DecodedTextureCache(m_assetFactory, m_directory);
+		BufferedImage decoded = cache.load(TEXTURE);
+		
+		//A new cache, as in a later session, finds the stored entry.
+		cache = new DecodedTextureCache(m_assetFactory, m_directory);
+		BufferedImage stored = cache.load(TEXTURE);
+		
+		assertEquals(1, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		assertEquals(BufferedImage.TYPE_INT_ARGB, stored.getType());
+		assertEquals(8, stored.getWidth());
+		assertEquals(4, stored.getHeight());
+		
+		for(int y = 0; y < 4; y++)
+		{
+			for(int x = 0; x < 8; x++)
+				assertEquals(decoded.getRGB(x, y), stored.getRGB(x, y));
+		}
+	}
+	
+	@Test
+	public void changedTexturesDiscardTheirPreviousEntry() throws Exception
+	{
+		DecodedTextureCache cache = new DecodedTextureCache(m_assetFactory, m_directory);
+		
+		m_assets.put(TEXTURE, encode(8, 8, 0xFF000000));
+		cache.load(TEXTURE);
+		
+		m_assets.put(TEXTURE, encode(8, 8, 0xFFFFFFFF));
+		assertEquals(0xFFFFFFFF, cache.load(TEXTURE).getRGB(0, 0));
+		
+		assertEquals(2, cache.getMissCount());
+		assertEquals(1, m_directory.listFiles().length);
+		assertEquals(entryLength(8, 8), cache.getSize());
+	}
+	
+	@Test
+	public void sharedEntriesAreKeptWhileInUse() throws Exception
+	{
+		DecodedTextureCache cache = new DecodedTextureCache(m_assetFactory, m_directory);
+		byte[] contents = encode(4, 4, 0xFF00FF00);
+		
+		m_assets.put(TEXTURE, contents);
+		m_assets.put(OTHER_TEXTURE, contents);
+		cache.load(TEXTURE);
+		cache.load(OTHER_TEXTURE);
+		
+		m_assets.put(TEXTURE, encode(4, 4, 0xFF0000FF));
+		cache.load(TEXTURE);
+		cache.load(OTHER_TEXTURE);
+		
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, m_directory.listFiles().length);
+	}
+	
+	@Test
+	public void leastRecentlyUsedEntriesAreEvicted() throws Exception
+	{
+		DecodedTextureCache cache = new DecodedTextureCache(m_assetFactory, m_directory, entryLength(16, 16));
+		
+		m_assets.put(TEXTURE, encode(16, 16, 0xFF102030));
+		m_assets.put(OTHER_TEXTURE, encode(16, 16, 0xFF405060));
+		cache.load(TEXTURE);
+		cache.load(OTHER_TEXTURE);
+		
+		assertEquals(1, m_directory.listFiles().length);
+		assertTrue(cache.getSize() <= entryLength(16, 16));
+		
+		cache.load(OTHER_TEXTURE);
+		assertEquals(1, cache.getHitCount());
+	}
+	
+	@Test
+	public void oversizedDirectoriesAreTrimmedWhenOpened() throws Exception
+	{
+		DecodedTextureCache cache = new DecodedTextureCache(m_assetFactory, m_directory);
+		
+		m_assets.put(TEXTURE, encode(16, 16, 0xFF102030));
+		m_assets.put(OTHER_TEXTURE, encode(16, 16, 0xFF405060));
+		cache.load(TEXTURE);
+		cache.load(OTHER_TEXTURE);
+		
+		assertEquals(2 * entryLength(16, 16), cache.getSize());
+		
+		cache = new DecodedTextureCache(m_assetFactory, m_directory, entryLength(16, 16));
+		
+		assertEquals(entryLength(16, 16), cache.getSize());
+		assertEquals(1, m_directory.listFiles().length);
+	}
+	
+	private static long entryLength(int width, int height)
+	{
+		return 16 + 4L * width * height;
+	}
+	
+	private static byte[] encode(int width, int height, int argb) throws IOException
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		
+		for(int y = 0; y < height; y++)
+		{
+			for(int x = 0; x < width; x++)
+				image.setRGB(x, y, argb);
+		}
+		
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", encoded);
+		
+		return encoded.toByteArray();
+	}
+}
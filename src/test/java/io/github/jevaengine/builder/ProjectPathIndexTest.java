@@ -0,0 +1,132 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProjectPathIndexTest
+{
+	private File m_root;
+	private ProjectPathIndex m_index;
+	
+	@Before
+	public void createProject() throws Exception
+	{
+		m_root = Files.createTempDirectory("project").toFile();
+		
+		create("ui/windows/status.jwl");
+		create("ui/windows/fileInput.jwl");
+		create("ui/font/pro/pro.juif");
+		create("ui/font/pro/texture.png");
+		create("world/map.jmp");
+		
+		m_index = new ProjectPathIndex(m_root);
+		
+		while(!m_index.isReady())
+			Thread.sleep(5);
+	}
+	
+	@After
+	public void deleteProject()
+	{
+		m_index.dispose();
+		delete(m_root);
+	}
+	
+	@Test(timeout = 10000)
+	public void completesPrefixesInOrder()
+	{
+		assertEquals(Arrays.asList("ui/windows/fileInput.jwl", "ui/windows/status.jwl"), m_index.complete("/ui/windows/", false, 10));
+		assertEquals(Arrays.asList("ui/font", "ui/font/pro", "ui/windows"), m_index.complete("ui/", true, 10));
+		assertEquals(Collections.singletonList("ui/windows/fileInput.jwl"), m_index.complete("ui\\windows\\", false, 1));
+		assertEquals(Collections.emptyList(), m_index.complete("missing", false, 10));
+	}
+	
+	@Test(timeout = 10000)
+	public void fuzzyCompletesIgnoringCase()
+	{
+		assertEquals(Arrays.asList("ui/font/pro/pro.juif"), m_index.fuzzyComplete("PRJUIF", false, 10));
+		assertEquals(Arrays.asList("ui/windows/fileInput.jwl", "ui/windows/status.jwl", "world/map.jmp"), m_index.fuzzyComplete("wj", false, 10));
+		assertEquals(Arrays.asList("ui/font/pro"), m_index.fuzzyComplete("fpr", true, 10));
+	}
+	
+	@Test(timeout = 10000)
+	public void fuzzyCompletionIgnoresUnmatchableCharacters()
+	{
+		assertEquals(Collections.emptyList(), m_index.fuzzyComplete("uiz", false, 10));
+		assertEquals(Collections.emptyList(), m_index.fuzzyComplete("jmp", true, 10));
+	}
+	
+	@Test(timeout = 10000)
+	public void removedPathsAreDropped() throws Exception
+	{
+		delete(new File(m_root, "ui/font"));
+		
+		while(!m_index.complete("ui/font", true, 10).isEmpty())
+			Thread.sleep(10);
+		
+		assertEquals(Collections.emptyList(), m_index.complete("ui/f", false, 10));
+		assertEquals(Collections.emptyList(), m_index.fuzzyComplete("texture", false, 10));
+		assertEquals(Arrays.asList("ui", "ui/windows", "world"), m_index.complete("", true, 10));
+	}
+	
+	@Test(timeout = 10000)
+	public void addedPathsAreIndexed() throws Exception
+	{
+		create("world/zone.jmp");
+		
+		List<String> completions;
+		
+		while((completions = m_index.fuzzyComplete("zone", false, 10)).isEmpty())
+			Thread.sleep(10);
+		
+		assertEquals(Collections.singletonList("world/zone.jmp"), completions);
+		assertTrue(m_index.complete("world/", false, 10).contains("world/map.jmp"));
+	}
+	
+	private void create(String path) throws IOException
+	{
+		File file = new File(m_root, path);
+		file.getParentFile().mkdirs();
+		assertTrue(file.createNewFile());
+	}
+	
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		
+		if(children != null)
+		{
+			for(File child : children)
+				delete(child);
+		}
+		
+		file.delete();
+	}
+}
@@ -0,0 +1,159 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ResourceCacheTest
+{
+	@Test
+	public void evictsLeastRecentlyUsedToStayWithinCapacity()
+	{
+		ResourceCache cache = new ResourceCache(30);
+		
+		cache.put("a", new byte[10]);
+		cache.put("b", new byte[10]);
+		cache.put("c", new byte[10]);
+		
+		//Touching a makes b the least recently used.
+		assertNotNull(cache.get("a"));
+		cache.put("d", new byte[10]);
+		
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+		assertEquals(30, cache.getSize());
+	}
+	
+	@Test
+	public void doesNotRetainResourcesLargerThanCapacity()
+	{
+		ResourceCache cache = new ResourceCache(8);
+		
+		cache.put("small", new byte[4]);
+		cache.put("large", new byte[9]);
+		
+		assertNull(cache.get("large"));
+		assertNotNull(cache.get("small"));
+		assertEquals(4, cache.getSize());
+	}
+	
+	@Test
+	public void replacingAnEntryAccountsForItsPreviousSize()
+	{
+		ResourceCache cache = new ResourceCache(100);
+		
+		cache.put("a", new byte[40]);
+		cache.put("a", new byte[10]);
+		
+		assertEquals(10, cache.getSize());
+		assertEquals(10, cache.get("a").length);
+	}
+	
+	@Test
+	public void countsHitsAndMisses()
+	{
+		ResourceCache cache = new ResourceCache(100);
+		cache.put("a", new byte[1]);
+		
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+		
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+	
+	@Test(timeout = 30000)
+	public void staysConsistentUnderConcurrentAccess() throws Exception
+	{
+		final ResourceCache cache = new ResourceCache(64 * 1024);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		
+		try
+		{
+			List<Future<Void>> workers = new ArrayList<>();
+			
+			for(int t = 0; t < 8; t++)
+			{
+				final int thread = t;
+				
+				workers.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call()
+					{
+						for(int i = 0; i < 20000; i++)
+						{
+							String name = "resource" + ((i * 31 + thread) % 200);
+							byte[] contents = cache.get(name);
+							
+							if(contents == null)
+							{
+								byte[] created = new byte[512 + name.length()];
+								created[0] = (byte)name.hashCode();
+								cache.put(name, created);
+							} else
+							{
+								//Entries are only ever stored whole, so the contents always match their name.
+								assertEquals(512 + name.length(), contents.length);
+								assertEquals((byte)name.hashCode(), contents[0]);
+							}
+							
+							assertTrue(cache.getSize() <= cache.getCapacity());
+						}
+						
+						return null;
+					}
+				}));
+			}
+			
+			for(Future<Void> w : workers)
+				w.get();
+		} finally
+		{
+			executor.shutdownNow();
+		}
+		
+		assertEquals(8 * 20000, cache.getHitCount() + cache.getMissCount());
+	}
+	
+	@Test
+	public void readFullyReadsTheWholeStream() throws Exception
+	{
+		byte[] contents = new byte[100000];
+		
+		for(int i = 0; i < contents.length; i++)
+			contents[i] = (byte)i;
+		
+		assertArrayEquals(contents, ResourceCache.readFully(new ByteArrayInputStream(contents)));
+	}
+}
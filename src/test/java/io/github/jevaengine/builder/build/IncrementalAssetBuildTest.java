@@ -0,0 +1,157 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.build;
+
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import io.github.jevaengine.builder.build.IncrementalAssetBuild.BuildSummary;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalAssetBuildTest
+{
+	private File m_source;
+	private File m_output;
+	
+	@Before
+	public void createRoots() throws IOException
+	{
+		m_source = Files.createTempDirectory("source").toFile();
+		m_output = Files.createTempDirectory("output").toFile();
+	}
+	
+	@After
+	public void deleteRoots()
+	{
+		delete(m_source);
+		delete(m_output);
+	}
+	
+	@Test
+	public void documentsAreCopiedByDefault() throws Exception
+	{
+		File style = new File(m_source, "ui/style.juis");
+		write(style, "{\"font\": \"pro.juif\"}", false);
+		
+		new IncrementalAssetBuild(m_source, m_output).build(false);
+		
+		assertArrayEquals(Files.readAllBytes(style.toPath()), Files.readAllBytes(new File(m_output, "ui/style.juis").toPath()));
+	}
+	
+	@Test
+	public void newOutputDirectoriesAreBuiltFully() throws Exception
+	{
+		write(new File(m_source, "ui/style.juis"), "{}", false);
+		write(new File(m_source, "ui/other.juis"), "{}", false);
+		
+		assertEquals(2, new IncrementalAssetBuild(m_source, m_output).build(false).getProcessed());
+		
+		File output = Files.createTempDirectory("output").toFile();
+		
+		try
+		{
+			BuildSummary summary = new IncrementalAssetBuild(m_source, output).build(false);
+			
+			assertEquals(2, summary.getProcessed());
+			assertEquals(0, summary.getUnchanged());
+			assertTrue(new File(output, "ui/other.juis").isFile());
+		} finally
+		{
+			delete(output);
+		}
+	}
+	
+	@Test
+	public void changedCompressedAssetsRebuildTheirDependents() throws Exception
+	{
+		File font = new File(m_source, "ui/pro.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION);
+		
+		write(new File(m_source, "ui/style.juis"), "{\"font\": \"pro.juif\"}", false);
+		write(new File(m_source, "ui/other.juis"), "{}", false);
+		write(font, "{\"glyphs\": []}", true);
+		
+		IncrementalAssetBuild build = new IncrementalAssetBuild(m_source, m_output);
+		
+		assertEquals(3, build.build(false).getProcessed());
+		
+		//Compressed assets are copied as they are.
+		File output = new File(m_output, "ui/pro.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION);
+		assertArrayEquals(Files.readAllBytes(font.toPath()), Files.readAllBytes(output.toPath()));
+		
+		write(font, "{\"glyphs\": [], \"texture\": \"pro.png\"}", true);
+		BuildSummary summary = build.build(false);
+		
+		assertEquals(2, summary.getProcessed());
+		assertEquals(1, summary.getUnchanged());
+		assertArrayEquals(Files.readAllBytes(font.toPath()), Files.readAllBytes(output.toPath()));
+	}
+	
+	@Test
+	public void removedCompressedAssetsRebuildTheirDependents() throws Exception
+	{
+		File font = new File(m_source, "ui/pro.juif" + BuilderAssetStreamFactory.COMPRESSED_EXTENSION);
+		
+		write(new File(m_source, "ui/style.juis"), "{\"font\": \"pro.juif\"}", false);
+		write(font, "{\"glyphs\": []}", true);
+		
+		IncrementalAssetBuild build = new IncrementalAssetBuild(m_source, m_output);
+		build.build(false);
+		
+		Files.delete(font.toPath());
+		BuildSummary summary = build.build(false);
+		
+		assertEquals(1, summary.getRemoved());
+		assertEquals(1, summary.getProcessed());
+		assertEquals(Arrays.asList("style.juis"), Arrays.asList(new File(m_output, "ui").list()));
+	}
+	
+	private static void write(File file, String contents, boolean isCompressed) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		
+		try(OutputStream os = isCompressed ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file))
+		{
+			os.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+	
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		
+		if(children != null)
+		{
+			for(File child : children)
+				delete(child);
+		}
+		
+		file.delete();
+	}
+}
@@ -0,0 +1,218 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class BinaryDocumentTest
+{
+	private static final String[] DOCUMENT_EXTENSIONS = {".jwl", ".juis", ".juif", ".jsf"};
+	
+	@Test
+	public void uiDocumentsRoundTrip() throws Exception
+	{
+		List<File> documents = new ArrayList<>();
+		collectDocuments(new File(BinaryDocumentTest.class.getResource("/ui").toURI()), documents);
+		
+		assertFalse(documents.isEmpty());
+		
+		for(File document : documents)
+		{
+			Object json;
+			
+			try(InputStream is = new FileInputStream(document))
+			{
+				json = BinaryDocument.load(is);
+			}
+			
+			try(InputStream is = new FileInputStream(document))
+			{
+				assertEquals(document.getPath(), JsonDocumentReader.read(is), json);
+			}
+			
+			assertEquals(document.getPath(), json, BinaryDocument.load(new ByteArrayInputStream(encode(json))));
+		}
+	}
+	
+	@Test
+	public void integerEdgeValuesRoundTrip() throws IOException
+	{
+		long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, (long)Integer.MAX_VALUE + 1, (long)Integer.MIN_VALUE - 1, Long.MAX_VALUE, Long.MIN_VALUE};
+		
+		for(long value : values)
+			assertEquals(value, roundTrip(value));
+		
+		assertEquals(-1L, roundTrip(-1));
+		assertEquals((long)Integer.MIN_VALUE, roundTrip(Integer.MIN_VALUE));
+	}
+	
+	@Test
+	public void smallIntegersEncodeToSingleByte() throws IOException
+	{
+		int emptyLength = encode(null).length;
+		
+		assertEquals(emptyLength + 1, encode(0L).length);
+		assertEquals(emptyLength + 1, encode(-1L).length);
+		assertEquals(emptyLength + 1, encode(-64L).length);
+		assertEquals(emptyLength + 2, encode(64L).length);
+		assertEquals(emptyLength + 10, encode(Long.MIN_VALUE).length);
+	}
+	
+	@Test
+	public void realsRoundTrip() throws IOException
+	{
+		double[] values = {0.0, -0.5, 1e300, Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY};
+		
+		for(double value : values)
+			assertEquals(value, roundTrip(value));
+	}
+	
+	@Test
+	public void longStringsRoundTrip() throws IOException
+	{
+		StringBuilder ascii = new StringBuilder();
+		StringBuilder multiByte = new StringBuilder();
+		
+		for(int i = 0; i < 70000; i++)
+		{
+			ascii.append((char)('a' + i % 26));
+			multiByte.append(i % 2 == 0 ? "\u00e9" : "\uD83D\uDE00");
+		}
+		
+		assertEquals(ascii.toString(), roundTrip(ascii.toString()));
+		assertEquals(multiByte.toString(), roundTrip(multiByte.toString()));
+		assertEquals("", roundTrip(""));
+		assertEquals("\u0000", roundTrip("\u0000"));
+	}
+	
+	@Test
+	public void nestedDocumentsRoundTrip() throws IOException
+	{
+		Map<String, Object> inner = new LinkedHashMap<>();
+		inner.put("name", "inner");
+		inner.put("values", Arrays.<Object>asList(1L, 2.5, null, true, false, "name"));
+		
+		Map<String, Object> document = new LinkedHashMap<>();
+		document.put("empty", new LinkedHashMap<String, Object>());
+		document.put("emptyArray", new ArrayList<Object>());
+		document.put("inner", inner);
+		document.put("name", "name");
+		
+		Object decoded = roundTrip(document);
+		
+		assertEquals(document, decoded);
+		assertEquals(new ArrayList<>(document.keySet()), new ArrayList<>(((Map<?, ?>)decoded).keySet()));
+	}
+	
+	@Test(expected = IOException.class)
+	public void otherVersionsAreRejected() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(BinaryDocument.MAGIC);
+		out.writeByte(BinaryDocument.VERSION + 1);
+		out.writeByte(0);
+		out.writeByte(0);
+		
+		BinaryDocument.load(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+	
+	@Test
+	public void truncatedDocumentsAreRejected() throws IOException
+	{
+		byte[] encoded = encode(Arrays.<Object>asList("first", 1L, "second"));
+		
+		for(int length = BinaryDocument.MAGIC.length + 1; length < encoded.length; length++)
+		{
+			try
+			{
+				BinaryDocument.read(new ByteArrayInputStream(Arrays.copyOf(encoded, length)));
+				fail("Document truncated to " + length + " bytes was read.");
+			} catch (EOFException e) { }
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void invalidTagsAreRejected() throws IOException
+	{
+		byte[] encoded = encode(null);
+		encoded[encoded.length - 1] = 42;
+		
+		BinaryDocument.read(new ByteArrayInputStream(encoded));
+	}
+	
+	@Test
+	public void headerIdentifiesBinaryDocuments() throws IOException
+	{
+		assertTrue(BinaryDocument.isBinary(encode(null), BinaryDocument.MAGIC.length));
+		assertFalse(BinaryDocument.isBinary("{}".getBytes("UTF-8"), 2));
+	}
+	
+	private static Object roundTrip(Object document) throws IOException
+	{
+		return BinaryDocument.load(new ByteArrayInputStream(encode(document)));
+	}
+	
+	private static byte[] encode(Object document) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryDocument.write(document, bytes);
+		
+		return bytes.toByteArray();
+	}
+	
+	private static void collectDocuments(File directory, List<File> documents)
+	{
+		File[] children = directory.listFiles();
+		
+		if(children == null)
+			return;
+		
+		for(File child : children)
+		{
+			if(child.isDirectory())
+				collectDocuments(child, documents);
+			else
+			{
+				for(String extension : DOCUMENT_EXTENSIONS)
+				{
+					if(child.getName().endsWith(extension))
+						documents.add(child);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.remote;
+
+import io.github.jevaengine.IAssetStreamFactory.AssetStreamConstructionException;
+import io.github.jevaengine.builder.BuilderAssetStreamFactory;
+import io.github.jevaengine.builder.remote.RemoteAssetStreamFactory.RemoteAssetException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssetServerTest
+{
+	@Rule
+	public final TemporaryFolder m_folder = new TemporaryFolder();
+	
+	private File m_directory;
+	private BuilderAssetStreamFactory m_assetFactory;
+	private AssetServer m_server;
+	private RemoteAssetStreamFactory m_client;
+	
+	@Before
+	public void startServer() throws IOException
+	{
+		m_directory = m_folder.getRoot();
+		File root = new File(m_directory, "root");
+		
+		write(new File(root, "sub/asset.txt"), "asset");
+		write(new File(m_directory, "secret.txt"), "secret");
+		
+		m_assetFactory = new BuilderAssetStreamFactory(root.toURI());
+		m_server = new AssetServer(m_assetFactory);
+		m_client = new RemoteAssetStreamFactory(m_server.getPort());
+	}
+	
+	@After
+	public void stopServer()
+	{
+		m_client.dispose();
+		m_server.dispose();
+		m_assetFactory.dispose();
+	}
+	
+	@Test(timeout = 30000)
+	public void servesAssetsFromRoots() throws Exception
+	{
+		assertEquals("asset", read(m_client.create(URI.create("sub/asset.txt"))));
+		assertEquals("asset", read(m_client.create(URI.create("sub/./asset.txt"))));
+		assertEquals("asset", read(m_client.create(URI.create("other/../sub/asset.txt"))));
+	}
+	
+	@Test(timeout = 30000)
+	public void servesLocalAssets() throws Exception
+	{
+		try(InputStream expected = AssetServerTest.class.getResourceAsStream("/ui/windows/status.jwl"))
+		{
+			assertEquals(read(expected), read(m_client.create(URI.create("local:///ui/windows/status.jwl"))));
+		}
+	}
+	
+	@Test(timeout = 30000)
+	public void pipelinedRequestsAreAnsweredInOrder() throws Exception
+	{
+		List<URI> names = new ArrayList<>();
+		
+		for(int i = 0; i < 40; i++)
+		{
+			write(new File(m_directory, "root/batch/" + i + ".txt"), "asset " + i);
+			names.add(URI.create("batch/" + i + ".txt"));
+		}
+		
+		names.add(URI.create("batch/missing.txt"));
+		
+		Map<URI, InputStream> streams = m_client.createAll(names);
+		
+		assertEquals(40, streams.size());
+		
+		for(int i = 0; i < 40; i++)
+			assertEquals("asset " + i, read(streams.get(names.get(i))));
+	}
+	
+	@Test(timeout = 30000)
+	public void pathsOutsideOfRootsAreRefused() throws Exception
+	{
+		String[] requests = {"../secret.txt", "sub/../../secret.txt", "..", "local:///../secret.txt", m_directory.getAbsolutePath() + "/secret.txt"};
+		
+		for(String request : requests)
+			assertRefused(URI.create(request.replace(File.separatorChar, '/')));
+	}
+	
+	@Test(timeout = 30000)
+	public void unresponsiveServersTimeOut() throws Exception
+	{
+		//Connections are completed by the backlog without being accepted, and nothing is ever sent on them.
+		try(ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+		{
+			RemoteAssetStreamFactory client = new RemoteAssetStreamFactory(new InetSocketAddress(InetAddress.getLoopbackAddress(), silent.getLocalPort()), 1, 200);
+			
+			try
+			{
+				long start = System.currentTimeMillis();
+				
+				try
+				{
+					client.create(URI.create("sub/asset.txt"));
+					fail("Request to an unresponsive server completed.");
+				} catch (AssetStreamConstructionException e) { }
+				
+				assertTrue(System.currentTimeMillis() - start < 10000);
+			} finally
+			{
+				client.dispose();
+			}
+		}
+	}
+	
+	private void assertRefused(URI name)
+	{
+		try
+		{
+			m_client.create(name);
+			fail(name + " was served.");
+		} catch (AssetStreamConstructionException e)
+		{
+			assertTrue(e.getCause() instanceof RemoteAssetException);
+		}
+	}
+	
+	private static String read(InputStream is) throws IOException
+	{
+		try
+		{
+			ByteArrayOutputStream contents = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			
+			for(int read; (read = is.read(buffer)) != -1;)
+				contents.write(buffer, 0, read);
+			
+			return new String(contents.toByteArray(), StandardCharsets.UTF_8);
+		} finally
+		{
+			is.close();
+		}
+	}
+	
+	private static void write(File file, String contents) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		
+		try(OutputStream os = new FileOutputStream(file))
+		{
+			os.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
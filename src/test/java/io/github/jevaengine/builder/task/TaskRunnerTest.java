@@ -0,0 +1,220 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.task;
+
+import io.github.jevaengine.builder.task.TaskRunner.ITaskStatusObserver;
+import io.github.jevaengine.builder.task.TaskRunner.RunningTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskRunnerTest
+{
+	private TaskRunner m_runner;
+	
+	@Before
+	public void createRunner()
+	{
+		m_runner = new TaskRunner(4);
+	}
+	
+	@After
+	public void disposeRunner()
+	{
+		m_runner.dispose();
+	}
+	
+	@Test(timeout = 30000)
+	public void finalStatusIsNeverOverwritten() throws Exception
+	{
+		for(int run = 0; run < 50; run++)
+		{
+			RecordingObserver observer = new RecordingObserver();
+			RunningTask task = m_runner.run("Task", Arrays.asList(new TaskStage("Stage", 1, subtasks(64, 1))), observer);
+			
+			task.await();
+			
+			//Give a periodic status that raced with completion the opportunity to be published.
+			Thread.sleep(run == 0 ? 200 : 5);
+			
+			List<Float> progress = observer.getProgress();
+			assertEquals(1.0F, progress.get(progress.size() - 1), 0);
+		}
+	}
+	
+	@Test(timeout = 30000)
+	public void progressIsWeightedByStage() throws Exception
+	{
+		final CountDownLatch secondStageStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		ISubtask blocking = new ISubtask() {
+			@Override
+			public long getWork()
+			{
+				return 2;
+			}
+			
+			@Override
+			public void run(IProgressMonitor monitor) throws Exception
+			{
+				monitor.worked(1);
+				secondStageStarted.countDown();
+				release.await();
+				monitor.worked(1);
+			}
+		};
+		
+		RunningTask task = m_runner.run("Task", Arrays.asList(
+				new TaskStage("First", 1, subtasks(4, 1)),
+				new TaskStage("Second", 3, Collections.singletonList(blocking))));
+		
+		assertTrue(secondStageStarted.await(10, TimeUnit.SECONDS));
+		
+		assertEquals("Task: Second", task.getStatus());
+		assertEquals((1 + 3 * 0.5F) / 4, task.getProgress(), 0.0001);
+		assertFalse(task.isDone());
+		
+		release.countDown();
+		task.await();
+		
+		assertEquals(1.0F, task.getProgress(), 0);
+	}
+	
+	@Test(timeout = 30000)
+	public void failuresAreReportedWithTheirCause() throws Exception
+	{
+		final Exception cause = new Exception("Subtask failed.");
+		
+		List<ISubtask> subtasks = new ArrayList<>(subtasks(8, 1));
+		subtasks.add(new ISubtask() {
+			@Override
+			public long getWork()
+			{
+				return 1;
+			}
+			
+			@Override
+			public void run(IProgressMonitor monitor) throws Exception
+			{
+				throw cause;
+			}
+		});
+		
+		RecordingObserver observer = new RecordingObserver();
+		RunningTask task = m_runner.run("Task", Arrays.asList(new TaskStage("Stage", 1, subtasks), new TaskStage("Skipped", 1, subtasks(1, 1))), observer);
+		
+		try
+		{
+			task.await();
+			fail("Failed task completed.");
+		} catch (ExecutionException e)
+		{
+			assertSame(cause, e.getCause());
+		}
+		
+		assertTrue(task.isCancelled());
+		assertEquals("Task: Stage", task.getStatus());
+		
+		List<Float> progress = observer.getProgress();
+		assertTrue(progress.get(progress.size() - 1) < 1.0F);
+	}
+	
+	@Test(timeout = 30000, expected = CancellationException.class)
+	public void cancelledTasksStopRunningSubtasks() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		
+		ISubtask polling = new ISubtask() {
+			@Override
+			public long getWork()
+			{
+				return 1;
+			}
+			
+			@Override
+			public void run(IProgressMonitor monitor) throws Exception
+			{
+				started.countDown();
+				
+				while(!monitor.isCancelled())
+					Thread.sleep(1);
+			}
+		};
+		
+		RunningTask task = m_runner.run("Task", Arrays.asList(new TaskStage("Stage", 1, Collections.singletonList(polling))));
+		
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		task.cancel();
+		task.await();
+	}
+	
+	private static List<ISubtask> subtasks(int count, final long work)
+	{
+		List<ISubtask> subtasks = new ArrayList<>();
+		
+		for(int i = 0; i < count; i++)
+		{
+			subtasks.add(new ISubtask() {
+				@Override
+				public long getWork()
+				{
+					return work;
+				}
+				
+				@Override
+				public void run(IProgressMonitor monitor)
+				{
+					monitor.worked(work);
+				}
+			});
+		}
+		
+		return subtasks;
+	}
+	
+	private static final class RecordingObserver implements ITaskStatusObserver
+	{
+		private final List<Float> m_progress = new ArrayList<>();
+		
+		@Override
+		public synchronized void statusChanged(String status, float progress)
+		{
+			m_progress.add(progress);
+		}
+		
+		public synchronized List<Float> getProgress()
+		{
+			return new ArrayList<>(m_progress);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.ui.IWindowFactory;
+import io.github.jevaengine.ui.Window;
+import io.github.jevaengine.ui.WindowBehaviourInjector;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CachingWindowFactoryTest
+{
+	private static final URI FIRST_LAYOUT = URI.create("local:///first.jwl");
+	private static final URI SECOND_LAYOUT = URI.create("local:///second.jwl");
+	
+	@Test(timeout = 10000)
+	public void disposeDoesNotWaitOnSparesBeingBuilt() throws Exception
+	{
+		BlockingWindowFactory delegate = new BlockingWindowFactory();
+		CachingWindowFactory factory = new CachingWindowFactory(delegate);
+		
+		//The first spare blocks the builder thread, leaving the second queued behind it.
+		factory.prepare(FIRST_LAYOUT);
+		factory.prepare(SECOND_LAYOUT);
+		assertTrue(delegate.m_started.await(5, TimeUnit.SECONDS));
+		
+		factory.dispose();
+		delegate.m_release.countDown();
+	}
+	
+	@Test(timeout = 10000)
+	public void failedSparesAreBuiltAgainOnRequest() throws Exception
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		
+		CachingWindowFactory factory = new CachingWindowFactory(new IWindowFactory() {
+			@Override
+			public Window create(URI name) throws WindowConstructionException
+			{
+				if(attempts.incrementAndGet() == 1)
+					throw new WindowConstructionException(name, new Exception("First build fails."));
+				
+				return null;
+			}
+			
+			@Override
+			public Window create(URI name, WindowBehaviourInjector behaviourInject) throws WindowConstructionException
+			{
+				return create(name);
+			}
+		});
+		
+		try
+		{
+			factory.prepare(FIRST_LAYOUT);
+			
+			while(attempts.get() == 0)
+				Thread.sleep(10);
+			
+			factory.create(FIRST_LAYOUT);
+			
+			//The failed spare, the synchronous retry, and at most the next spare.
+			assertTrue(attempts.get() >= 2);
+		} finally
+		{
+			factory.dispose();
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void prepareAfterDisposeDoesNothing() throws Exception
+	{
+		BlockingWindowFactory delegate = new BlockingWindowFactory();
+		CachingWindowFactory factory = new CachingWindowFactory(delegate);
+		
+		factory.dispose();
+		factory.prepare(FIRST_LAYOUT);
+		
+		assertEquals(1, delegate.m_started.getCount());
+	}
+	
+	private static final class BlockingWindowFactory implements IWindowFactory
+	{
+		private final CountDownLatch m_started = new CountDownLatch(1);
+		private final CountDownLatch m_release = new CountDownLatch(1);
+		
+		@Override
+		public Window create(URI name) throws WindowConstructionException
+		{
+			m_started.countDown();
+			
+			try
+			{
+				m_release.await();
+			} catch (InterruptedException e)
+			{
+				throw new WindowConstructionException(name, e);
+			}
+			
+			return null;
+		}
+		
+		@Override
+		public Window create(URI name, WindowBehaviourInjector behaviourInject) throws WindowConstructionException
+		{
+			return create(name);
+		}
+	}
+}
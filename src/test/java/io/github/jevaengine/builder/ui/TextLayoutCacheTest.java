@@ -0,0 +1,80 @@
+/* 
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.ui;
+
+import io.github.jevaengine.builder.config.JsonDocumentReader;
+import io.github.jevaengine.builder.ui.TextLayoutCache.TextLayout;
+import java.io.IOException;
+import java.io.InputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TextLayoutCacheTest
+{
+	private static final String TEXT = "Packing textures";
+	
+	private GlyphTable m_font;
+	
+	@Before
+	public void loadFont() throws IOException
+	{
+		try(InputStream is = TextLayoutCacheTest.class.getResourceAsStream("/ui/font/pro/pro.juif"))
+		{
+			m_font = GlyphTable.create(JsonDocumentReader.read(is));
+		}
+	}
+	
+	@Test
+	public void layoutMatchesGlyphWidths()
+	{
+		TextLayout layout = new TextLayoutCache(4).getLayout(m_font, TEXT);
+		
+		assertTrue(m_font.hasGlyph('P'));
+		assertFalse(m_font.hasGlyph('\u2603'));
+		assertEquals(m_font.measure(TEXT), layout.getWidth());
+		assertEquals(m_font.getLineHeight(), layout.getHeight());
+		
+		for(int i = 0; i < TEXT.length(); i++)
+			assertEquals(m_font.measure(TEXT.substring(0, i)), layout.getOffset(i));
+	}
+	
+	@Test
+	public void repeatedTextIsLaidOutOnce()
+	{
+		TextLayoutCache cache = new TextLayoutCache(4);
+		
+		assertSame(cache.getLayout(m_font, TEXT), cache.getLayout(m_font, new String(TEXT)));
+	}
+	
+	@Test
+	public void leastRecentlyUsedLayoutsAreEvicted()
+	{
+		TextLayoutCache cache = new TextLayoutCache(1);
+		TextLayout first = cache.getLayout(m_font, "first");
+		
+		cache.getLayout(m_font, "second");
+		
+		assertNotSame(first, cache.getLayout(m_font, "first"));
+	}
+}